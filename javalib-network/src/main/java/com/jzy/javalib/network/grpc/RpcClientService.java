@@ -1,7 +1,10 @@
 package com.jzy.javalib.network.grpc;
 
+import com.jzy.javalib.network.netty.IoRuntime;
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.shaded.io.netty.channel.socket.nio.NioSocketChannel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -17,7 +20,13 @@ public abstract class RpcClientService {
 
 
     public void start(String url) {
-        channel = ManagedChannelBuilder.forTarget(url).usePlaintext().build();
+        if (IoRuntime.isInitialized()) {
+            // 使用进程共享的grpc io线程
+            channel = NettyChannelBuilder.forTarget(url).eventLoopGroup(IoRuntime.getInstance().getGrpcGroup())
+                    .channelType(NioSocketChannel.class).usePlaintext().build();
+        } else {
+            channel = ManagedChannelBuilder.forTarget(url).usePlaintext().build();
+        }
     }
 
     public void stop() {
@@ -1,8 +1,12 @@
 package com.jzy.javalib.network.grpc;
 
+import com.jzy.javalib.network.netty.IoRuntime;
 import io.grpc.BindableService;
 import io.grpc.Server;
 import io.grpc.ServerBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.netty.shaded.io.netty.channel.EventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.grpc.util.MutableHandlerRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -79,7 +83,15 @@ public class RpcServerManager {
      */
     public void start(int rpcPort) {
         try {
-            ServerBuilder serverBuilder = ServerBuilder.forPort(rpcPort);
+            ServerBuilder serverBuilder;
+            if (IoRuntime.isInitialized()) {
+                // 使用进程共享的grpc io线程
+                EventLoopGroup group = IoRuntime.getInstance().getGrpcGroup();
+                serverBuilder = NettyServerBuilder.forPort(rpcPort).bossEventLoopGroup(group)
+                        .workerEventLoopGroup(group).channelType(NioServerSocketChannel.class);
+            } else {
+                serverBuilder = ServerBuilder.forPort(rpcPort);
+            }
             services.forEach(service -> serverBuilder.addService(service));
             serverBuilder.fallbackHandlerRegistry(mutableHandlerRegistry);
             server = serverBuilder.build().start();
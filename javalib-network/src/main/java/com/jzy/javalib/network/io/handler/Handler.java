@@ -32,7 +32,7 @@ public @interface Handler {
 	String desc() default "";
 	
 	/**
-	 * 调用的线程
+	 * 调用的线程，阻塞操作使用"Blocking"
 	 * 
 	 * @return
 	 */
@@ -44,4 +44,12 @@ public @interface Handler {
 	 * @return
 	 */
 	Class<? extends Message> msg() default Message.class;
+
+	/**
+	 * tcp handler是否池化复用，run结束时需调用{@link TcpHandler#recycle()}；
+	 * {@link StatelessTcpHandler} 始终单例
+	 *
+	 * @return
+	 */
+	boolean pooled() default false;
 }
@@ -0,0 +1,71 @@
+package com.jzy.javalib.network.io.handler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.function.Supplier;
+
+/**
+ * handler构造工厂，注册时生成，代替每次请求反射调用构造函数
+ * <br>
+ * 能获取handler类完整访问权限时（同一类加载器）用{@link LambdaMetafactory} 生成Supplier，和直接new一样可内联；
+ * 脚本类加载器加载的类使用{@link MethodHandle}。脚本重载时重新注册即重新生成
+ *
+ * @author jzyong
+ * @mail 359135103@qq.com
+ */
+final class HandlerFactory {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HandlerFactory.class);
+
+    private static final MethodType SUPPLIER_TYPE = MethodType.methodType(Supplier.class);
+    private static final MethodType GET_TYPE = MethodType.methodType(Object.class);
+
+    private HandlerFactory() {
+    }
+
+    /**
+     * 无参构造函数工厂
+     *
+     * @param type
+     * @return
+     * @throws NoSuchMethodException 没有无参构造函数
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Supplier<T> constructor(Class<? extends T> type) throws NoSuchMethodException {
+        MethodHandles.Lookup lookup;
+        MethodHandle constructor;
+        try {
+            lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+            constructor = lookup.findConstructor(type, MethodType.methodType(void.class));
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("handler构造函数不可访问 " + type.getName(), e);
+        }
+        if (lookup.hasFullPrivilegeAccess()) {
+            try {
+                CallSite callSite = LambdaMetafactory.metafactory(lookup, "get", SUPPLIER_TYPE, GET_TYPE, constructor,
+                        MethodType.methodType(type));
+                return (Supplier<T>) callSite.getTarget().invoke();
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
+                // 生成失败使用MethodHandle
+                LOGGER.warn("handler {} 生成构造工厂失败，使用MethodHandle", type.getName(), e);
+            }
+        }
+        MethodHandle generic = constructor.asType(GET_TYPE);
+        return () -> {
+            try {
+                return (T) generic.invokeExact();
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException("创建handler " + type.getName(), e);
+            }
+        };
+    }
+}
@@ -1,12 +1,16 @@
 package com.jzy.javalib.network.io.handler;
 
 import com.jzy.javalib.base.script.IHandlerLoader;
+import com.jzy.javalib.network.io.message.MessageIdRegistry;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
  * Handler 管理
@@ -24,14 +28,20 @@ public class HandlerManager implements IHandlerLoader {
      */
     @SuppressWarnings("rawtypes")
     Map<Integer, TcpHandlerBuilder> tcpHandlerBuilders = new ConcurrentHashMap<>();// 存TCP消息处理类
+    /**
+     * TCP消息分发表，{@link #tcpHandlerBuilders} 的只读副本，int键查询不装箱；
+     * 注册和脚本重载时置空，下次查询时重建并整体替换
+     */
+    @SuppressWarnings("rawtypes")
+    private volatile IntObjectMap<TcpHandlerBuilder> tcpHandlerTable;
     /**
      * HTTP:{path:消息处理Bean}
      */
-    Map<String, Class<? extends HttpHandler>> httpHandlerClasses = new ConcurrentHashMap<>();// 存HTTP消息处理类
+    Map<String, Supplier<? extends HttpHandler>> httpHandlerFactories = new ConcurrentHashMap<>();// 存HTTP消息处理类
     /**
      * Rpc:{path:Handler} rpc消息处理类
      */
-    Map<String, Class<? extends RpcHandler>> rpcHandlerClasses = new ConcurrentHashMap<>();
+    Map<String, Supplier<? extends RpcHandler>> rpcHandlerFactories = new ConcurrentHashMap<>();
 
 
     public static HandlerManager getInstance() {
@@ -51,20 +61,23 @@ public class HandlerManager implements IHandlerLoader {
 
     @Override
     public void loadHandler(Class<?> defineClass) {
-        if (IHandler.class.isAssignableFrom(defineClass)) {
+        if (IHandler.class.isAssignableFrom(defineClass) || StatelessTcpHandler.class.isAssignableFrom(defineClass)) {
             try {
                 Handler handler = defineClass.getAnnotation(Handler.class);
                 if (handler != null) {
-                    if (TcpHandler.class.isAssignableFrom(defineClass)) {
+                    if (isTcpHandler(defineClass)) {
                         TcpHandlerBuilder messageBean = new TcpHandlerBuilder(handler.msg(), defineClass,
-                                handler.executor());
-                        tcpHandlerBuilders.put(handler.mid(), messageBean);
+                                handler.executor(), handler.pooled());
+                        putTcpHandlerBuilder(handler.mid(), messageBean);
+                        MessageIdRegistry.register(handler.msg(), handler.mid(), messageBean.getParser());
                         LOGGER.trace("tcp handler ：[{}]", defineClass.getName());
                     } else if (HttpHandler.class.isAssignableFrom(defineClass)) {
-                        httpHandlerClasses.put(handler.path(), (Class<? extends HttpHandler>) (defineClass));
+                        httpHandlerFactories.put(handler.path(),
+                                HandlerFactory.constructor((Class<? extends HttpHandler>) (defineClass)));
                         LOGGER.trace("http handler ：[{}]", defineClass.getName());
                     } else if (RpcHandler.class.isAssignableFrom(defineClass)) {
-                        rpcHandlerClasses.put(handler.path(), (Class<? extends RpcHandler>) (defineClass));
+                        rpcHandlerFactories.put(handler.path(),
+                                HandlerFactory.constructor((Class<? extends RpcHandler>) (defineClass)));
                         LOGGER.trace("rpc handler ：[{}]", defineClass.getName());
                     } else {
                         LOGGER.warn("handler[{}]未继承Handler", defineClass.getSimpleName());
@@ -80,7 +93,29 @@ public class HandlerManager implements IHandlerLoader {
 
 
     public TcpHandlerBuilder getTcpHandlerBuilder(int msgId) {
-        return tcpHandlerBuilders.get(msgId);
+        return tcpHandlerTable().get(msgId);
+    }
+
+    @SuppressWarnings("rawtypes")
+    private synchronized void putTcpHandlerBuilder(int msgId, TcpHandlerBuilder builder) {
+        tcpHandlerBuilders.put(msgId, builder);
+        tcpHandlerTable = null;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private IntObjectMap<TcpHandlerBuilder> tcpHandlerTable() {
+        IntObjectMap<TcpHandlerBuilder> table = tcpHandlerTable;
+        if (table != null) {
+            return table;
+        }
+        synchronized (this) {
+            if (tcpHandlerTable == null) {
+                IntObjectMap<TcpHandlerBuilder> newTable = new IntObjectHashMap<>(tcpHandlerBuilders.size());
+                tcpHandlerBuilders.forEach(newTable::put);
+                tcpHandlerTable = newTable;
+            }
+            return tcpHandlerTable;
+        }
     }
 
     /**
@@ -93,12 +128,12 @@ public class HandlerManager implements IHandlerLoader {
         if (path.contains("?")) {
             path = path.substring(0, path.indexOf("?"));
         }
-        Class<? extends HttpHandler> class1 = httpHandlerClasses.get(path);
-        if (class1 == null) {
+        Supplier<? extends HttpHandler> factory = httpHandlerFactories.get(path);
+        if (factory == null) {
             return null;
         }
         try {
-            return class1.getDeclaredConstructor().newInstance();
+            return factory.get();
         } catch (Exception e) {
             LOGGER.error("HTTP消息", e);
         }
@@ -112,12 +147,12 @@ public class HandlerManager implements IHandlerLoader {
      * @return
      */
     public RpcHandler getRpcHandler(String path) {
-        Class<? extends RpcHandler> class1 = rpcHandlerClasses.get(path);
-        if (class1 == null) {
+        Supplier<? extends RpcHandler> factory = rpcHandlerFactories.get(path);
+        if (factory == null) {
             return null;
         }
         try {
-            return class1.getDeclaredConstructor().newInstance();
+            return factory.get();
         } catch (Exception e) {
             LOGGER.error("RPC消息", e);
         }
@@ -131,7 +166,7 @@ public class HandlerManager implements IHandlerLoader {
      * @return
      */
     public boolean tcpIsRegister(int mid) {
-        return tcpHandlerBuilders.containsKey(mid);
+        return tcpHandlerTable().containsKey(mid);
     }
 
     /**
@@ -143,17 +178,28 @@ public class HandlerManager implements IHandlerLoader {
         return tcpHandlerBuilders.keySet();
     }
 
+    private static boolean isTcpHandler(Class<?> handlerClass) {
+        return TcpHandler.class.isAssignableFrom(handlerClass)
+                || StatelessTcpHandler.class.isAssignableFrom(handlerClass);
+    }
+
     /**
      * 注册tcp Handler
      *
-     * @param handlerClass
+     * @param handlerClass {@link TcpHandler} 或{@link StatelessTcpHandler}
      */
-    public void registerTcpHandler(Class<? extends TcpHandler> handlerClass) {
+    public void registerTcpHandler(Class<?> handlerClass) {
+        if (!isTcpHandler(handlerClass)) {
+            LOGGER.warn("handler[{}]不是tcp handler", handlerClass.getSimpleName());
+            return;
+        }
         try {
             Handler handler = handlerClass.getAnnotation(Handler.class);
             if (handler != null) {
-                TcpHandlerBuilder tcpHandlerBuilder = new TcpHandlerBuilder(handler.msg(), handlerClass, handler.executor());
-                tcpHandlerBuilders.put(handler.mid(), tcpHandlerBuilder);
+                TcpHandlerBuilder tcpHandlerBuilder = new TcpHandlerBuilder(handler.msg(), handlerClass,
+                        handler.executor(), handler.pooled());
+                putTcpHandlerBuilder(handler.mid(), tcpHandlerBuilder);
+                MessageIdRegistry.register(handler.msg(), handler.mid(), tcpHandlerBuilder.getParser());
                 LOGGER.info("加载到tcp handler到容器：{}", handlerClass.getSimpleName());
             }
         } catch (Exception e) {
@@ -0,0 +1,23 @@
+package com.jzy.javalib.network.io.handler;
+
+import com.google.protobuf.Message;
+
+/**
+ * 无状态tcp消息处理器，单例，请求数据通过{@link TcpHandlerContext} 传入
+ * <br>
+ * 和{@link TcpHandler} 一样使用{@link Handler} 注解注册，不能有请求相关的成员变量
+ *
+ * @param <Msg> 请求消息
+ * @author jzyong
+ * @mail 359135103@qq.com
+ */
+public interface StatelessTcpHandler<Msg extends Message> {
+
+    /**
+     * 处理消息
+     *
+     * @param context 请求上下文，方法返回后回收，不能保存引用
+     * @param request 请求消息
+     */
+    void handle(TcpHandlerContext context, Msg request);
+}
@@ -3,6 +3,7 @@ package com.jzy.javalib.network.io.handler;
 import com.google.protobuf.Message;
 import com.jzy.javalib.network.io.message.MsgUtil;
 import io.netty.channel.Channel;
+import io.netty.util.Recycler;
 
 /**
  * @author jzyong
@@ -23,6 +24,8 @@ public abstract class TcpHandler implements IHandler {
      * 消息序号
      */
     private int msgSequence;
+    // 对象池，非池化为null
+    Recycler.Handle<TcpHandler> recyclerHandle;
 
     /**
      * 发送消息，服务器内部通信
@@ -42,6 +45,30 @@ public abstract class TcpHandler implements IHandler {
         MsgUtil.sendClientMsg(channel, msg, msgSequence);
     }
 
+    /**
+     * 回收到对象池，非池化handler忽略
+     * <br>
+     * {@link Handler#pooled()} 的handler在run结束时调用，调用后不能再访问
+     */
+    public void recycle() {
+        if (recyclerHandle != null) {
+            reset();
+            recyclerHandle.recycle(this);
+        }
+    }
+
+    /**
+     * 回收前清空请求数据，池化handler有其他成员变量时重写
+     */
+    protected void reset() {
+        channel = null;
+        message = null;
+        createTime = 0;
+        id = 0;
+        msgBytes = null;
+        msgSequence = 0;
+    }
+
     public Channel getChannel() {
         return channel;
     }
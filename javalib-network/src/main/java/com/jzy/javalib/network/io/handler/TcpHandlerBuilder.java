@@ -1,11 +1,13 @@
 package com.jzy.javalib.network.io.handler;
 
+import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
 import io.netty.buffer.ByteBuf;
+import io.netty.util.Recycler;
 
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.Arrays;
+import java.util.function.Supplier;
 
 /**
  * 消息，消息处理器映射
@@ -20,16 +22,67 @@ public class TcpHandlerBuilder<Msg extends Message, MsgHandler extends IHandler>
     private final Class<? extends Message> messageClass;
     // Handler类型
     private final Class<? extends IHandler> handlerClass;
+    // Handler构造工厂
+    private final Supplier<? extends IHandler> handlerFactory;
     // 执行线程
     private final String executeThread;
-    //消息解析方法
-    private final Method parseFromMethod;
+    //消息解析器
+    private final Parser<Msg> parser;
+    //无状态处理器单例
+    private final StatelessTcpHandler<Message> statelessHandler;
+    //对象池，池化handler和无状态处理器上下文使用
+    private final Recycler<TcpHandler> recycler;
 
-    public TcpHandlerBuilder(Class<? extends Message> messageClass, Class<? extends IHandler> handlerClass, String executeThread) throws NoSuchMethodException {
+    public TcpHandlerBuilder(Class<? extends Message> messageClass, Class<?> handlerClass, String executeThread) throws NoSuchMethodException {
+        this(messageClass, handlerClass, executeThread, false);
+    }
+
+    /**
+     * @param messageClass
+     * @param handlerClass  {@link TcpHandler} 或{@link StatelessTcpHandler}
+     * @param executeThread
+     * @param pooled        TcpHandler是否池化
+     * @throws NoSuchMethodException
+     */
+    @SuppressWarnings("unchecked")
+    public TcpHandlerBuilder(Class<? extends Message> messageClass, Class<?> handlerClass, String executeThread,
+                             boolean pooled) throws NoSuchMethodException {
         this.messageClass = messageClass;
-        this.handlerClass = handlerClass;
         this.executeThread = executeThread;
-        parseFromMethod = messageClass.getDeclaredMethod("parseFrom", new Class<?>[]{byte[].class});
+        if (handlerClass != null && StatelessTcpHandler.class.isAssignableFrom(handlerClass)) {
+            this.handlerClass = null;
+            this.handlerFactory = null;
+            this.statelessHandler = HandlerFactory.<StatelessTcpHandler<Message>>constructor(
+                    (Class<? extends StatelessTcpHandler<Message>>) handlerClass).get();
+            this.recycler = new Recycler<>() {
+                @Override
+                protected TcpHandler newObject(Handle<TcpHandler> handle) {
+                    return new TcpHandlerContext(handle, statelessHandler);
+                }
+            };
+        } else {
+            this.handlerClass = (Class<? extends IHandler>) handlerClass;
+            this.handlerFactory = handlerClass == null ? null : HandlerFactory.constructor(this.handlerClass);
+            this.statelessHandler = null;
+            if (pooled && handlerClass != null && TcpHandler.class.isAssignableFrom(handlerClass)) {
+                this.recycler = new Recycler<>() {
+                    @Override
+                    protected TcpHandler newObject(Handle<TcpHandler> handle) {
+                        TcpHandler handler = (TcpHandler) handlerFactory.get();
+                        handler.recyclerHandle = handle;
+                        return handler;
+                    }
+                };
+            } else {
+                this.recycler = null;
+            }
+        }
+        try {
+            Message defaultInstance = (Message) messageClass.getDeclaredMethod("getDefaultInstance").invoke(null);
+            this.parser = (Parser<Msg>) defaultInstance.getParserForType();
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalArgumentException("消息解析器 " + messageClass.getName(), e);
+        }
     }
 
 
@@ -42,10 +95,8 @@ public class TcpHandlerBuilder<Msg extends Message, MsgHandler extends IHandler>
      * @throws IllegalArgumentException
      * @throws InvocationTargetException
      */
-    @SuppressWarnings("unchecked")
     public Msg buildMessage(final byte[] bytes) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException {
-        Msg msg = (Msg) parseFromMethod.invoke(null, bytes.length < 1 ? new byte[0] : bytes);
-        return msg;
+        return buildMessage(bytes, 0, bytes.length);
     }
 
     /**
@@ -60,15 +111,19 @@ public class TcpHandlerBuilder<Msg extends Message, MsgHandler extends IHandler>
      * @throws InvocationTargetException
      */
     public Msg buildMessage(final byte[] bytes, int off, int len) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException {
-        byte[] ib = Arrays.copyOfRange(bytes, off, len);
-        return buildMessage(ib);
+        try {
+            return parser.parseFrom(bytes, off, len);
+        } catch (InvalidProtocolBufferException e) {
+            // 保持和反射调用一致的异常类型
+            throw new InvocationTargetException(e);
+        }
     }
 
     /**
-     * 构建消息
+     * 构建消息，直接从ByteBuf解析，支持堆外和池化内存，不复制
      *
      * @param buf
-     * @param off
+     * @param off 绝对位置
      * @param len
      * @return
      * @throws IllegalAccessException
@@ -76,8 +131,31 @@ public class TcpHandlerBuilder<Msg extends Message, MsgHandler extends IHandler>
      * @throws InvocationTargetException
      */
     public Msg buildMessage(final ByteBuf buf, int off, int len) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException {
-        ByteBuf data = buf.slice(off, len);
-        return buildMessage(data.array());
+        if (buf.hasArray()) {
+            return buildMessage(buf.array(), buf.arrayOffset() + off, len);
+        }
+        try {
+            return parser.parseFrom(buf.nioBuffer(off, len));
+        } catch (InvalidProtocolBufferException e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    /**
+     * 构建消息，解析全部可读字节，不改变读索引
+     *
+     * @param buf
+     * @return
+     * @throws IllegalAccessException
+     * @throws IllegalArgumentException
+     * @throws InvocationTargetException
+     */
+    public Msg buildMessage(final ByteBuf buf) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException {
+        return buildMessage(buf, buf.readerIndex(), buf.readableBytes());
+    }
+
+    public Parser<Msg> getParser() {
+        return parser;
     }
 
     @Override
@@ -94,10 +172,29 @@ public class TcpHandlerBuilder<Msg extends Message, MsgHandler extends IHandler>
      */
     @Override
     public IHandler buildHandler() throws InstantiationException, IllegalAccessException, NoSuchMethodException, InvocationTargetException {
-        if (handlerClass == null) {
+        if (recycler != null) {
+            return recycler.get();
+        }
+        if (handlerFactory == null) {
             return null;
         }
-        return  handlerClass.getDeclaredConstructor().newInstance();
+        return handlerFactory.get();
+    }
+
+    /**
+     * 无状态处理器
+     *
+     * @return 非无状态handler返回null
+     */
+    public StatelessTcpHandler<Message> getStatelessHandler() {
+        return statelessHandler;
+    }
+
+    /**
+     * 是否池化，池化和无状态handler由{@link #buildHandler()} 从对象池获取
+     */
+    public boolean isPooled() {
+        return recycler != null;
     }
 
     public Class<? extends Message> getMessageClass() {
@@ -0,0 +1,35 @@
+package com.jzy.javalib.network.io.handler;
+
+import com.google.protobuf.Message;
+import io.netty.util.Recycler;
+
+/**
+ * {@link StatelessTcpHandler} 请求上下文，池化复用
+ * <br>
+ * 由{@link TcpHandlerBuilder#buildHandler()} 创建，和{@link TcpHandler} 一样设置连接、消息、id、序号后提交执行，执行完自动回收
+ *
+ * @author jzyong
+ * @mail 359135103@qq.com
+ */
+public final class TcpHandlerContext extends TcpHandler {
+
+    private final StatelessTcpHandler<Message> handler;
+
+    TcpHandlerContext(Recycler.Handle<TcpHandler> recyclerHandle, StatelessTcpHandler<Message> handler) {
+        this.recyclerHandle = recyclerHandle;
+        this.handler = handler;
+    }
+
+    @Override
+    public void run() {
+        try {
+            handler.handle(this, message);
+        } finally {
+            recycle();
+        }
+    }
+
+    public StatelessTcpHandler<Message> getHandler() {
+        return handler;
+    }
+}
@@ -0,0 +1,80 @@
+package com.jzy.javalib.network.io.message;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.DefaultByteBufHolder;
+
+/**
+ * 客户端消息帧，由{@link ClientFrameDecoder} 解码，消息头已解析，{@link #content()} 为protobuf消息体
+ * <br>
+ * 持有引用计数，处理完需释放
+ *
+ * @author jzyong
+ * @mail 359135103@qq.com
+ */
+public final class ClientFrame extends DefaultByteBufHolder {
+
+    /**
+     * 加密标识，在长度字段中
+     */
+    public static final int ENCRYPT_FLAG = 0x40000000;
+
+    /**
+     * 长度字段中标识位
+     */
+    static final int FLAG_MASK = 0xC0000000;
+
+    private final int msgId;
+
+    /**
+     * 消息序号
+     */
+    private final int msgSequence;
+
+    /**
+     * 长度字段高位标识
+     */
+    private final int flags;
+
+    public ClientFrame(int msgId, int msgSequence, int flags, ByteBuf body) {
+        super(body);
+        this.msgId = msgId;
+        this.msgSequence = msgSequence;
+        this.flags = flags;
+    }
+
+    public int getMsgId() {
+        return msgId;
+    }
+
+    public int getMsgSequence() {
+        return msgSequence;
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+
+    /**
+     * 消息体是否加密
+     */
+    public boolean isEncrypt() {
+        return (flags & ENCRYPT_FLAG) != 0;
+    }
+
+    @Override
+    public ClientFrame replace(ByteBuf content) {
+        return new ClientFrame(msgId, msgSequence, flags, content);
+    }
+
+    @Override
+    public ClientFrame retain() {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "ClientFrame(msgId=" + msgId + ", msgSequence=" + msgSequence + ", flags=" + Integer.toHexString(flags)
+                + ", " + content().readableBytes() + "B)";
+    }
+}
@@ -0,0 +1,81 @@
+package com.jzy.javalib.network.io.message;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * 客户端消息解码，消息长度4+消息id4+保留字段4+消息序号4+protobuf消息体，小端，输出{@link ClientFrame}
+ * <br>
+ * 长度字段读到后立即校验，超过上限关闭连接，不缓存超长消息；一次读取的多个消息在一次调用中解完
+ * <br>
+ * 负数序号保留给服务器内部请求，客户端发送负数序号关闭连接，避免转发后匹配到其他请求的回复
+ *
+ * @author jzyong
+ * @mail 359135103@qq.com
+ */
+public class ClientFrameDecoder extends ByteToMessageDecoder {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClientFrameDecoder.class);
+
+    /**
+     * 长度字段之后的消息头长度
+     */
+    private static final int HEADER_EXCLUDE_LENGTH = MsgUtil.ClientHeaderExcludeLength;
+
+    /**
+     * 最大长度，不包括长度字段
+     */
+    private final int maxFrameLength;
+
+    public ClientFrameDecoder() {
+        this(MsgUtil.MESSAGE_MAX_SIZE);
+    }
+
+    /**
+     * @param maxFrameLength 最大长度，不包括长度字段
+     */
+    public ClientFrameDecoder(int maxFrameLength) {
+        if (maxFrameLength < HEADER_EXCLUDE_LENGTH) {
+            throw new IllegalArgumentException("maxFrameLength: " + maxFrameLength);
+        }
+        this.maxFrameLength = maxFrameLength;
+        setCumulator(COMPOSITE_CUMULATOR);
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+        while (in.readableBytes() >= 4) {
+            int readerIndex = in.readerIndex();
+            int lengthField = in.getIntLE(readerIndex);
+            int frameLength = lengthField & ~ClientFrame.FLAG_MASK;
+            if (frameLength < HEADER_EXCLUDE_LENGTH || frameLength > maxFrameLength) {
+                LOGGER.warn("客户端消息长度异常：{} 上限：{} 关闭连接：{}", frameLength, maxFrameLength,
+                        MsgUtil.getRemoteIpPort(ctx.channel()));
+                in.skipBytes(in.readableBytes());
+                ctx.close();
+                return;
+            }
+            if (in.readableBytes() - 4 < frameLength) {
+                // 消息体长度不够，继续等待
+                return;
+            }
+            int msgId = in.getIntLE(readerIndex + 4);
+            int msgSequence = in.getIntLE(readerIndex + 12);
+            if (msgSequence < 0) {
+                LOGGER.warn("客户端消息序号异常：{} 消息id：{} 关闭连接：{}", msgSequence, msgId,
+                        MsgUtil.getRemoteIpPort(ctx.channel()));
+                in.skipBytes(in.readableBytes());
+                ctx.close();
+                return;
+            }
+            int bodyLength = frameLength - HEADER_EXCLUDE_LENGTH;
+            ByteBuf body = in.retainedSlice(readerIndex + MsgUtil.ClientHeaderLength, bodyLength);
+            in.readerIndex(readerIndex + 4 + frameLength);
+            out.add(new ClientFrame(msgId, msgSequence, lengthField & ClientFrame.FLAG_MASK, body));
+        }
+    }
+}
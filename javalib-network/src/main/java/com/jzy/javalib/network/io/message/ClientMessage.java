@@ -0,0 +1,67 @@
+package com.jzy.javalib.network.io.message;
+
+import com.google.protobuf.Message;
+
+/**
+ * 发给客户端的消息，由{@link ClientMessageEncoder} 编码，添加客户端消息头
+ *
+ * @author jzyong
+ * @mail 359135103@qq.com
+ */
+public final class ClientMessage {
+
+    /**
+     * {@link Message} 或 byte[]
+     */
+    private final Object body;
+
+    private final int msgId;
+
+    /**
+     * 消息序号
+     */
+    private final int msgSequence;
+
+    /**
+     * 消息体是否已加密
+     */
+    private final boolean encrypt;
+
+    private ClientMessage(Object body, int msgId, int msgSequence, boolean encrypt) {
+        this.body = body;
+        this.msgId = msgId;
+        this.msgSequence = msgSequence;
+        this.encrypt = encrypt;
+    }
+
+    public static ClientMessage newClientMessage(Message message, int msgSequence) {
+        return new ClientMessage(message, MsgUtil.getMessageID(message), msgSequence, false);
+    }
+
+    public static ClientMessage newClientMessage(Message message, int msgId, int msgSequence) {
+        return new ClientMessage(message, msgId, msgSequence, false);
+    }
+
+    /**
+     * 已加密的消息体
+     */
+    public static ClientMessage newEncryptMessage(byte[] bytes, int msgId, int msgSequence) {
+        return new ClientMessage(bytes, msgId, msgSequence, true);
+    }
+
+    public Object getBody() {
+        return body;
+    }
+
+    public int getMsgId() {
+        return msgId;
+    }
+
+    public int getMsgSequence() {
+        return msgSequence;
+    }
+
+    public boolean isEncrypt() {
+        return encrypt;
+    }
+}
@@ -0,0 +1,101 @@
+package com.jzy.javalib.network.io.message;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Message;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToByteEncoder;
+
+import java.io.IOException;
+
+/**
+ * 客户端消息编码，消息长度4+消息id4+保留字段4+消息序号4+protobuf消息体，小端
+ * <br>
+ * 按{@link Message#getSerializedSize()} 分配池化堆外内存，protobuf直接序列化到ByteBuf，不生成中间byte[]
+ *
+ * @author jzyong
+ * @mail 359135103@qq.com
+ */
+@ChannelHandler.Sharable
+public class ClientMessageEncoder extends MessageToByteEncoder<ClientMessage> {
+
+    public ClientMessageEncoder() {
+        super(ClientMessage.class);
+    }
+
+    @Override
+    protected ByteBuf allocateBuffer(ChannelHandlerContext ctx, ClientMessage msg, boolean preferDirect) {
+        return ctx.alloc().ioBuffer(MsgUtil.ClientHeaderLength + bodySize(msg.getBody()));
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, ClientMessage msg, ByteBuf out) throws Exception {
+        writeMessage(out, msg.getBody(), msg.getMsgId(), msg.getMsgSequence(), msg.isEncrypt());
+    }
+
+    /**
+     * 编码到新分配的ByteBuf，不经过pipeline时使用
+     *
+     * @param alloc
+     * @param body        {@link Message} 或 byte[]
+     * @param msgId
+     * @param msgSequence
+     * @param encrypt
+     * @return
+     */
+    public static ByteBuf encode(ByteBufAllocator alloc, Object body, int msgId, int msgSequence, boolean encrypt) {
+        ByteBuf buf = alloc.ioBuffer(MsgUtil.ClientHeaderLength + bodySize(body));
+        try {
+            writeMessage(buf, body, msgId, msgSequence, encrypt);
+            return buf;
+        } catch (Throwable t) {
+            buf.release();
+            throw new IllegalStateException("消息编码 " + msgId, t);
+        }
+    }
+
+    private static int bodySize(Object body) {
+        if (body instanceof Message) {
+            return ((Message) body).getSerializedSize();
+        }
+        return ((byte[]) body).length;
+    }
+
+    private static void writeMessage(ByteBuf out, Object body, int msgId, int msgSequence, boolean encrypt)
+            throws IOException {
+        int bodySize = bodySize(body);
+        int length = MsgUtil.ClientHeaderExcludeLength + bodySize;
+        out.writeIntLE(encrypt ? length | ClientFrame.ENCRYPT_FLAG : length);
+        out.writeIntLE(msgId);
+        out.writeIntLE(0);
+        out.writeIntLE(msgSequence);
+        if (body instanceof Message) {
+            writeProto(out, (Message) body, bodySize);
+        } else {
+            out.writeBytes((byte[]) body);
+        }
+    }
+
+    /**
+     * protobuf直接写入ByteBuf
+     */
+    static void writeProto(ByteBuf out, Message message, int size) throws IOException {
+        out.ensureWritable(size);
+        int writerIndex = out.writerIndex();
+        CodedOutputStream output;
+        if (out.hasArray()) {
+            output = CodedOutputStream.newInstance(out.array(), out.arrayOffset() + writerIndex, size);
+        } else if (out.nioBufferCount() == 1) {
+            output = CodedOutputStream.newInstance(out.nioBuffer(writerIndex, size));
+        } else {
+            message.writeTo(new ByteBufOutputStream(out));
+            return;
+        }
+        message.writeTo(output);
+        output.checkNoSpaceLeft();
+        out.writerIndex(writerIndex + size);
+    }
+}
@@ -0,0 +1,87 @@
+package com.jzy.javalib.network.io.message;
+
+import com.google.protobuf.Message;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageEncoder;
+
+import java.util.List;
+
+/**
+ * 转发消息编码，{@link ClientFrame}、{@link InnerFrame} 和{@link IdMessage}
+ * <br>
+ * 消息头单独分配，消息体直接追加到输出，不复制，由gather write一起写出；
+ * IdMessage消息体为{@link Message} 时直接序列化到池化内存
+ *
+ * @author jzyong
+ * @mail 359135103@qq.com
+ */
+@ChannelHandler.Sharable
+public class FrameEncoder extends MessageToMessageEncoder<Object> {
+
+    @Override
+    public boolean acceptOutboundMessage(Object msg) {
+        return msg instanceof ClientFrame || msg instanceof InnerFrame || msg instanceof IdMessage;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, Object msg, List<Object> out) throws Exception {
+        if (msg instanceof ClientFrame) {
+            ClientFrame frame = (ClientFrame) msg;
+            ByteBuf body = frame.content();
+            ByteBuf header = ctx.alloc().ioBuffer(MsgUtil.ClientHeaderLength);
+            header.writeIntLE((MsgUtil.ClientHeaderExcludeLength + body.readableBytes()) | frame.getFlags());
+            header.writeIntLE(frame.getMsgId());
+            header.writeIntLE(0);
+            header.writeIntLE(frame.getMsgSequence());
+            out.add(header);
+            out.add(body.retain());
+        } else if (msg instanceof InnerFrame) {
+            InnerFrame frame = (InnerFrame) msg;
+            ByteBuf body = frame.content();
+            out.add(innerHeader(ctx, frame.getId(), frame.getMsgId(), frame.getMsgSequence(), body.readableBytes()));
+            out.add(body.retain());
+        } else {
+            encodeIdMessage(ctx, (IdMessage) msg, out);
+        }
+    }
+
+    private static void encodeIdMessage(ChannelHandlerContext ctx, IdMessage msg, List<Object> out) throws Exception {
+        Object body = msg.getMsg();
+        if (body instanceof ByteBuf) {
+            // 消息体引用转移到输出
+            ByteBuf buf = (ByteBuf) body;
+            out.add(innerHeader(ctx, msg.getId(), msg.getMsgId(), msg.getMsgSequence(), buf.readableBytes()));
+            out.add(buf);
+            return;
+        }
+        int bodySize = body instanceof Message ? ((Message) body).getSerializedSize() : ((byte[]) body).length;
+        int length = MsgUtil.InnerHeaderLength + bodySize;
+        ByteBuf buf = ctx.alloc().ioBuffer(4 + length);
+        try {
+            buf.writeInt(length);
+            buf.writeLong(msg.getId());
+            buf.writeInt(msg.getMsgId());
+            buf.writeInt(msg.getMsgSequence());
+            if (body instanceof Message) {
+                ClientMessageEncoder.writeProto(buf, (Message) body, bodySize);
+            } else {
+                buf.writeBytes((byte[]) body);
+            }
+            out.add(buf);
+        } catch (Throwable t) {
+            buf.release();
+            throw t;
+        }
+    }
+
+    private static ByteBuf innerHeader(ChannelHandlerContext ctx, long id, int msgId, int msgSequence, int bodySize) {
+        ByteBuf header = ctx.alloc().ioBuffer(4 + MsgUtil.InnerHeaderLength);
+        header.writeInt(MsgUtil.InnerHeaderLength + bodySize);
+        header.writeLong(id);
+        header.writeInt(msgId);
+        header.writeInt(msgSequence);
+        return header;
+    }
+}
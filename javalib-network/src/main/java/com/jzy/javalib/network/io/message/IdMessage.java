@@ -6,6 +6,8 @@ import io.netty.channel.Channel;
 
 /**
  * 内部消息，网关到游戏逻辑服，为每个消息添加一个ID标识
+ * <br>
+ * 网关只转发不处理的消息使用{@link InnerFrame}，不解析消息体
  *
  * @author jzyong
  * @mail 359135103@qq.com
@@ -0,0 +1,99 @@
+package com.jzy.javalib.network.io.message;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.DefaultByteBufHolder;
+
+/**
+ * 服务器内部消息帧，唯一id8+消息id4+消息序号4+protobuf消息体，大端
+ * <br>
+ * 网关转发使用，只读取消息头，消息体不解析不复制，{@link #content()} 为消息体；持有引用计数，处理完需释放
+ *
+ * @author jzyong
+ * @mail 359135103@qq.com
+ */
+public final class InnerFrame extends DefaultByteBufHolder {
+
+    /**
+     * 唯一编号，角色|用户id
+     */
+    private final long id;
+
+    private final int msgId;
+
+    /**
+     * 消息序号
+     */
+    private final int msgSequence;
+
+    public InnerFrame(long id, int msgId, int msgSequence, ByteBuf body) {
+        super(body);
+        this.id = id;
+        this.msgId = msgId;
+        this.msgSequence = msgSequence;
+    }
+
+    /**
+     * 解析{@link InnerFrameDecoder} 输出的消息，读取消息头，消息体直接使用frame，转移引用
+     *
+     * @param frame 不包括长度字段
+     * @return
+     */
+    public static InnerFrame decode(ByteBuf frame) {
+        if (frame.readableBytes() < MsgUtil.InnerHeaderLength) {
+            int length = frame.readableBytes();
+            frame.release();
+            throw new IllegalArgumentException("内部消息长度异常：" + length);
+        }
+        long id = frame.readLong();
+        int msgId = frame.readInt();
+        int msgSequence = frame.readInt();
+        return new InnerFrame(id, msgId, msgSequence, frame);
+    }
+
+    /**
+     * 客户端消息转发到服务器内部，共享消息体
+     *
+     * @param id    角色|用户id
+     * @param frame 不改变引用计数
+     * @return
+     */
+    public static InnerFrame forward(long id, ClientFrame frame) {
+        return new InnerFrame(id, frame.getMsgId(), frame.getMsgSequence(), frame.content().retainedSlice());
+    }
+
+    /**
+     * 转发给客户端，共享消息体，不改变本消息引用计数
+     */
+    public ClientFrame toClientFrame() {
+        return new ClientFrame(msgId, msgSequence, 0, content().retainedSlice());
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public int getMsgId() {
+        return msgId;
+    }
+
+    public int getMsgSequence() {
+        return msgSequence;
+    }
+
+    @Override
+    public InnerFrame replace(ByteBuf content) {
+        return new InnerFrame(id, msgId, msgSequence, content);
+    }
+
+    @Override
+    public InnerFrame retain() {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "InnerFrame(id=" + id + ", msgId=" + msgId + ", msgSequence=" + msgSequence + ", "
+                + content().readableBytes() + "B)";
+    }
+}
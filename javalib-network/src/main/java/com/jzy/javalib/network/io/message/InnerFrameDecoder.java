@@ -0,0 +1,67 @@
+package com.jzy.javalib.network.io.message;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * 服务器内部消息解码，消息长度4（大端，不包括自身）+消息内容，输出去掉长度字段的ByteBuf，见{@link MsgUtil#decode}；
+ * 转发模式输出{@link InnerFrame}
+ *
+ * @author jzyong
+ * @mail 359135103@qq.com
+ */
+public class InnerFrameDecoder extends ByteToMessageDecoder {
+    private static final Logger LOGGER = LoggerFactory.getLogger(InnerFrameDecoder.class);
+
+    /**
+     * 最大长度，不包括长度字段
+     */
+    private final int maxFrameLength;
+
+    /**
+     * 是否输出{@link InnerFrame}
+     */
+    private final boolean frameView;
+
+    public InnerFrameDecoder() {
+        this(MsgUtil.MESSAGE_INNER_MAX_SIZE, false);
+    }
+
+    /**
+     * @param maxFrameLength 最大长度，不包括长度字段
+     * @param frameView      true输出{@link InnerFrame}，false输出ByteBuf
+     */
+    public InnerFrameDecoder(int maxFrameLength, boolean frameView) {
+        if (maxFrameLength < (frameView ? MsgUtil.InnerHeaderLength : 1)) {
+            throw new IllegalArgumentException("maxFrameLength: " + maxFrameLength);
+        }
+        this.maxFrameLength = maxFrameLength;
+        this.frameView = frameView;
+        setCumulator(COMPOSITE_CUMULATOR);
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+        // 一次解完所有完整消息
+        while (MsgUtil.decode(ctx, in, out, maxFrameLength)) {
+            if (frameView) {
+                int last = out.size() - 1;
+                ByteBuf frame = (ByteBuf) out.get(last);
+                if (frame.readableBytes() < MsgUtil.InnerHeaderLength) {
+                    LOGGER.warn("内部消息长度异常：{}", frame.readableBytes());
+                    out.remove(last);
+                    frame.release();
+                    in.skipBytes(in.readableBytes());
+                    ctx.close();
+                    return;
+                }
+                out.set(last, InnerFrame.decode(frame));
+            }
+        }
+    }
+}
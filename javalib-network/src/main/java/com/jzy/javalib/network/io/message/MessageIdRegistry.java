@@ -0,0 +1,120 @@
+package com.jzy.javalib.network.io.message;
+
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 消息类型和消息id映射
+ * <br>
+ * 类型到id用{@link ClassValue} 缓存，首次查询时按{@link MsgUtil#MessageIdRule} 计算，之后发送消息不再反射和计算字符串hash；
+ * id到{@link Parser} 使用原始int表，启动时由HandlerManager注册，读多写少，写时复制
+ *
+ * @author jzyong
+ * @mail 359135103@qq.com
+ */
+public final class MessageIdRegistry {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageIdRegistry.class);
+
+    /**
+     * 未找到消息id
+     */
+    private static final Integer NO_ID = 0;
+
+    /**
+     * 显式注册的消息id，优先于规则计算
+     */
+    private static final Map<Class<?>, Integer> REGISTERED_IDS = new ConcurrentHashMap<>();
+
+    private static final ClassValue<Integer> MESSAGE_IDS = new ClassValue<>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            Integer id = REGISTERED_IDS.get(type);
+            return id != null ? id : resolveMessageId(type);
+        }
+    };
+
+    /**
+     * 消息id：消息解析器
+     */
+    private static volatile IntObjectMap<Parser<? extends Message>> parsers = new IntObjectHashMap<>();
+
+    private MessageIdRegistry() {
+    }
+
+    /**
+     * 注册消息
+     *
+     * @param messageClass
+     * @param msgId
+     * @param parser       可为null
+     */
+    public static void register(Class<? extends Message> messageClass, int msgId, Parser<? extends Message> parser) {
+        if (messageClass != null && messageClass != Message.class) {
+            REGISTERED_IDS.put(messageClass, msgId);
+            MESSAGE_IDS.remove(messageClass);
+        }
+        if (parser != null) {
+            synchronized (MessageIdRegistry.class) {
+                IntObjectMap<Parser<? extends Message>> newParsers = new IntObjectHashMap<>(parsers.size() + 1);
+                newParsers.putAll(parsers);
+                newParsers.put(msgId, parser);
+                parsers = newParsers;
+            }
+        }
+    }
+
+    /**
+     * 消息id
+     *
+     * @param messageClass
+     * @return 未定义返回0
+     */
+    public static int getMessageId(Class<? extends Message> messageClass) {
+        int id = MESSAGE_IDS.get(messageClass);
+        if (id == 0) {
+            // 不缓存未找到的结果，规则和映射可能在之后设置
+            MESSAGE_IDS.remove(messageClass);
+            LOGGER.warn("协议 {} 没有定义合规的消息ID", messageClass.getSimpleName());
+        }
+        return id;
+    }
+
+    /**
+     * 消息解析器
+     *
+     * @param msgId
+     * @return 未注册返回null
+     */
+    public static Parser<? extends Message> getParser(int msgId) {
+        return parsers.get(msgId);
+    }
+
+    /**
+     * 按{@link MsgUtil#MessageIdRule} 计算消息id
+     */
+    private static Integer resolveMessageId(Class<?> type) {
+        try {
+            if (MsgUtil.MessageIdRule == MsgUtil.MessageIdNumberOneDefaultValue) {
+                // 编号1字段为枚举默认值，同一类型固定
+                Message message = (Message) type.getMethod("getDefaultInstance").invoke(null);
+                Descriptors.EnumValueDescriptor field = (Descriptors.EnumValueDescriptor) message
+                        .getField(message.getDescriptorForType().findFieldByNumber(1));
+                return field.getNumber();
+            }
+            Map<String, Integer> messageNameIds = MsgUtil.MessageNameIds;
+            Integer id = messageNameIds == null ? null : messageNameIds.get(type.getSimpleName());
+            return id == null ? NO_ID : id;
+        } catch (Exception e) {
+            LOGGER.warn("协议 {} 获取消息ID", type.getName(), e);
+            return NO_ID;
+        }
+    }
+}
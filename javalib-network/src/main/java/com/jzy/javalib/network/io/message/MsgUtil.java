@@ -1,19 +1,24 @@
 package com.jzy.javalib.network.io.message;
 
-import com.google.protobuf.Descriptors;
 import com.google.protobuf.Message;
 import com.jzy.javalib.base.util.ByteUtil;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventLoop;
+import io.netty.util.ReferenceCountUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * 消息发送工具
@@ -37,6 +42,10 @@ public class MsgUtil {
      * 最大消息长度限制
      */
     public static final int MESSAGE_MAX_SIZE = 35000;
+    /**
+     * 服务器内部消息最大长度限制
+     */
+    public static int MESSAGE_INNER_MAX_SIZE = 16 * 1024 * 1024;
     /**
      * 消息ID长度
      */
@@ -53,6 +62,10 @@ public class MsgUtil {
      * 客户端消息长度，不包括自身
      */
     public static final int ClientHeaderExcludeLength = 12;
+    /**
+     * 服务器内部消息头长度，不包括长度字段：唯一id8+消息id4+消息序号4
+     */
+    public static final int InnerHeaderLength = 16;
 
     /**
      * proto 编号1的默认值，proto2支持，proto3不支持了
@@ -118,24 +131,13 @@ public class MsgUtil {
     }
 
     /**
-     * 消息ID
+     * 消息ID，见{@link MessageIdRegistry}
      *
      * @param message
      * @return
      */
     public static int getMessageID(final Message message) {
-        if (MessageIdRule == MessageIdNumberOneDefaultValue) {
-            Descriptors.EnumValueDescriptor field = (Descriptors.EnumValueDescriptor) message
-                    .getField(message.getDescriptorForType().findFieldByNumber(1));
-            return field.getNumber();
-        } else {
-            Integer mid = MessageNameIds.get(message.getClass().getSimpleName());
-            if (mid == null) {
-                LOGGER.warn("协议 {} 没有定义合规的消息ID", message.getClass().getSimpleName());
-                return 0;
-            }
-            return mid;
-        }
+        return MessageIdRegistry.getMessageId(message.getClass());
     }
 
     /**
@@ -184,15 +186,9 @@ public class MsgUtil {
             // 不能直接发生message，需要转换
             if (msgSequence > 0 && msg instanceof Message) {
                 var message = (Message) msg;
-                var bytes = message.toByteArray();
-                // 消息长度4+消息id4+保留字段4+消息序号4+protobuf消息体
-                ByteBuf buffer = Unpooled.buffer(ClientHeaderLength + bytes.length);
-                buffer.writeIntLE(ClientHeaderExcludeLength + bytes.length);
-                buffer.writeIntLE(getMessageID(message));
-                buffer.writeIntLE(0);
-                buffer.writeIntLE(msgSequence);
-                buffer.writeBytes(bytes);
-                channel.writeAndFlush(buffer);
+                // 消息长度4+消息id4+保留字段4+消息序号4+protobuf消息体，直接序列化到池化内存
+                channel.writeAndFlush(ClientMessageEncoder.encode(channel.alloc(), message, getMessageID(message),
+                        msgSequence, false));
             } else {
                 channel.writeAndFlush(msg);
             }
@@ -223,14 +219,7 @@ public class MsgUtil {
         if (channel != null && channel.isActive()) {
             // 不能直接发生message，需要转换
             // 消息长度4+消息id4+保留字段4+消息序号4+protobuf消息体
-            ByteBuf buffer = Unpooled.buffer(ClientHeaderLength + msg.length);
-            int length = ClientHeaderExcludeLength + msg.length;
-            buffer.writeIntLE(length | 0x40000000);
-            buffer.writeIntLE(msgId);
-            buffer.writeIntLE(0);
-            buffer.writeIntLE(msgSequence);
-            buffer.writeBytes(msg);
-            channel.writeAndFlush(buffer);
+            channel.writeAndFlush(ClientMessageEncoder.encode(channel.alloc(), msg, msgId, msgSequence, true));
             return true;
         } else {
             LOGGER.warn("发送消息失败{}，连接异常", msg.getClass().getName());
@@ -238,6 +227,198 @@ public class MsgUtil {
         return false;
     }
 
+    /**
+     * 广播客户端消息，如场景内所有玩家，客户端消息头（小端）
+     * <br>
+     * 消息只序列化一次，每个连接写入共享内存的{@link ByteBuf#retainedDuplicate()}；
+     * 连接按所属EventLoop分组，每个EventLoop提交一个任务写入并flush
+     *
+     * @param channels 客户端连接
+     * @param msg      {@link Message} 或已编码的{@link ByteBuf}，ByteBuf由方法负责释放
+     * @return 发送的连接数
+     */
+    public static int broadcastClientMsg(Collection<? extends Channel> channels, Object msg) {
+        if (msg == null) {
+            return 0;
+        }
+        if (!(msg instanceof Message) && !(msg instanceof ByteBuf)) {
+            throw new IllegalArgumentException(String.format("消息 %s 类型不支持", msg.getClass().getSimpleName()));
+        }
+        Map<EventLoop, List<Channel>> loopChannels = groupByEventLoop(channels);
+        if (loopChannels.isEmpty()) {
+            ReferenceCountUtil.release(msg);
+            return 0;
+        }
+        ByteBuf buf;
+        if (msg instanceof Message) {
+            var message = (Message) msg;
+            buf = ClientMessageEncoder.encode(firstChannel(loopChannels).alloc(), message, getMessageID(message), 0,
+                    false);
+        } else {
+            buf = (ByteBuf) msg;
+        }
+        return broadcast(loopChannels, buf);
+    }
+
+    /**
+     * 广播服务器内部消息，内部消息头（大端，长度4+id8+消息id4+序号4），消息只编码一次
+     *
+     * @param channels 服务器内部连接
+     * @param msg      {@link Message}（id、序号为-1）、{@link IdMessage} 或{@link InnerFrame}，InnerFrame由方法负责释放
+     * @return 发送的连接数
+     */
+    public static int broadcastInnerMsg(Collection<? extends Channel> channels, Object msg) {
+        if (msg == null) {
+            return 0;
+        }
+        if (!(msg instanceof Message) && !(msg instanceof IdMessage) && !(msg instanceof InnerFrame)) {
+            ReferenceCountUtil.release(msg);
+            throw new IllegalArgumentException(String.format("消息 %s 类型不支持", msg.getClass().getSimpleName()));
+        }
+        Map<EventLoop, List<Channel>> loopChannels = groupByEventLoop(channels);
+        if (loopChannels.isEmpty()) {
+            ReferenceCountUtil.release(msg);
+            return 0;
+        }
+        ByteBufAllocator alloc = firstChannel(loopChannels).alloc();
+        ByteBuf buf;
+        if (msg instanceof Message) {
+            var message = (Message) msg;
+            buf = encodeInner(alloc, -1, getMessageID(message), -1, message);
+        } else if (msg instanceof IdMessage) {
+            IdMessage idMessage = (IdMessage) msg;
+            try {
+                buf = encodeInner(alloc, idMessage.getId(), idMessage.getMsgId(), idMessage.getMsgSequence(),
+                        idMessage.getMsg());
+            } finally {
+                ReferenceCountUtil.release(idMessage.getMsg());
+            }
+        } else {
+            InnerFrame frame = (InnerFrame) msg;
+            try {
+                buf = encodeInner(alloc, frame.getId(), frame.getMsgId(), frame.getMsgSequence(), frame.content());
+            } finally {
+                frame.release();
+            }
+        }
+        return broadcast(loopChannels, buf);
+    }
+
+    /**
+     * 编码内部消息，包括长度字段
+     *
+     * @param body {@link Message}、byte[] 或ByteBuf，ByteBuf共享内存，不改变其引用计数
+     */
+    private static ByteBuf encodeInner(ByteBufAllocator alloc, long id, int msgId, int msgSequence, Object body) {
+        if (body instanceof ByteBuf) {
+            ByteBuf content = (ByteBuf) body;
+            ByteBuf header = alloc.ioBuffer(4 + InnerHeaderLength);
+            header.writeInt(InnerHeaderLength + content.readableBytes());
+            header.writeLong(id);
+            header.writeInt(msgId);
+            header.writeInt(msgSequence);
+            return alloc.compositeBuffer(2).addComponents(true, header, content.retainedSlice());
+        }
+        int bodySize = body instanceof Message ? ((Message) body).getSerializedSize() : ((byte[]) body).length;
+        ByteBuf buf = alloc.ioBuffer(4 + InnerHeaderLength + bodySize);
+        try {
+            buf.writeInt(InnerHeaderLength + bodySize);
+            buf.writeLong(id);
+            buf.writeInt(msgId);
+            buf.writeInt(msgSequence);
+            if (body instanceof Message) {
+                ClientMessageEncoder.writeProto(buf, (Message) body, bodySize);
+            } else {
+                buf.writeBytes((byte[]) body);
+            }
+            return buf;
+        } catch (Throwable t) {
+            buf.release();
+            throw new IllegalStateException("消息编码 " + msgId, t);
+        }
+    }
+
+    /**
+     * 可用连接按所属EventLoop分组
+     */
+    private static Map<EventLoop, List<Channel>> groupByEventLoop(Collection<? extends Channel> channels) {
+        Map<EventLoop, List<Channel>> loopChannels = new IdentityHashMap<>();
+        if (channels == null) {
+            return loopChannels;
+        }
+        for (Channel channel : channels) {
+            if (channel != null && channel.isActive()) {
+                loopChannels.computeIfAbsent(channel.eventLoop(), k -> new ArrayList<>()).add(channel);
+            }
+        }
+        return loopChannels;
+    }
+
+    private static Channel firstChannel(Map<EventLoop, List<Channel>> loopChannels) {
+        return loopChannels.values().iterator().next().get(0);
+    }
+
+    /**
+     * 每个EventLoop提交一个任务写入已编码的消息
+     *
+     * @param buf 方法负责释放
+     * @return 发送的连接数
+     */
+    private static int broadcast(Map<EventLoop, List<Channel>> loopChannels, ByteBuf buf) {
+        int count = 0;
+        try {
+            for (Map.Entry<EventLoop, List<Channel>> entry : loopChannels.entrySet()) {
+                EventLoop loop = entry.getKey();
+                BroadcastTask task = new BroadcastTask(entry.getValue(), buf.retain());
+                if (loop.inEventLoop()) {
+                    task.run();
+                } else {
+                    try {
+                        loop.execute(task);
+                    } catch (RejectedExecutionException e) {
+                        // EventLoop关闭中，跳过其连接
+                        task.buf.release();
+                        LOGGER.warn("广播消息提交失败，跳过{}个连接", entry.getValue().size());
+                        continue;
+                    }
+                }
+                count += entry.getValue().size();
+            }
+        } finally {
+            buf.release();
+        }
+        return count;
+    }
+
+    /**
+     * 在EventLoop中写入同一线程的所有连接，持有一次buf引用
+     */
+    private static final class BroadcastTask implements Runnable {
+        private final List<Channel> channels;
+        private final ByteBuf buf;
+
+        BroadcastTask(List<Channel> channels, ByteBuf buf) {
+            this.channels = channels;
+            this.buf = buf;
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (Channel channel : channels) {
+                    if (channel.isActive()) {
+                        channel.write(buf.retainedDuplicate(), channel.voidPromise());
+                    }
+                }
+                for (Channel channel : channels) {
+                    channel.flush();
+                }
+            } finally {
+                buf.release();
+            }
+        }
+    }
+
     /**
      * 获取IP地址
      *
@@ -329,34 +510,47 @@ public class MsgUtil {
     }
 
     /**
-     * 消息解码，去掉消息头长度
+     * 消息解码，去掉消息头长度，长度上限{@link #MESSAGE_INNER_MAX_SIZE}
      *
      * @param ctx
      * @param in
      * @param out
      */
     public static void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+        decode(ctx, in, out, MESSAGE_INNER_MAX_SIZE);
+    }
+
+    /**
+     * 消息解码，去掉消息头长度，长度异常时关闭连接
+     *
+     * @param ctx
+     * @param in
+     * @param out
+     * @param maxFrameLength 最大长度，不包括长度字段
+     * @return true 解出一个消息
+     */
+    public static boolean decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out, int maxFrameLength) {
         if (in.readableBytes() < 4) {
-            return;
+            return false;
         }
-        in.markReaderIndex();
-        int dataLength = in.readInt();
+        int readerIndex = in.readerIndex();
+        int dataLength = in.getInt(readerIndex);
 
-        if (dataLength < 1) {
-            LOGGER.warn("消息解析异常,长度{}，id{}", dataLength, in.readInt());
-            in.clear();
+        if (dataLength < 1 || dataLength > maxFrameLength) {
+            LOGGER.warn("消息解析异常,长度{}，上限{}", dataLength, maxFrameLength);
+            in.skipBytes(in.readableBytes());
             ctx.close();
-            return;
+            return false;
         }
 
         // 消息体长度不够，继续等待
-        if (in.readableBytes() < dataLength) {
-            in.resetReaderIndex();
-            return;
+        if (in.readableBytes() - 4 < dataLength) {
+            return false;
         }
 
-        ByteBuf readRetainedSlice = in.readRetainedSlice(dataLength);
-        out.add(readRetainedSlice);
+        out.add(in.retainedSlice(readerIndex + 4, dataLength));
+        in.readerIndex(readerIndex + 4 + dataLength);
+        return true;
     }
 
 }
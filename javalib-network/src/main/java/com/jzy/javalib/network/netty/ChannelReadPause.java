@@ -0,0 +1,78 @@
+package com.jzy.javalib.network.netty;
+
+import io.netty.channel.Channel;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 连接暂停读取计数，多个背压来源（发送缓冲满、场景过载）共用，全部恢复后才继续读取
+ * <br>
+ * 不直接调用{@link io.netty.channel.ChannelConfig#setAutoRead(boolean)}，在连接线程中按当前计数设置，并发暂停、恢复时以最后的计数为准
+ *
+ * @author jzyong
+ * @mail 359135103@qq.com
+ */
+public final class ChannelReadPause {
+
+    private static final AttributeKey<AtomicInteger> PAUSE_COUNT = AttributeKey.valueOf("readPauseCount");
+
+    private ChannelReadPause() {
+    }
+
+    /**
+     * 暂停读取，和{@link #resume(Channel)} 成对调用
+     *
+     * @param channel
+     */
+    public static void pause(Channel channel) {
+        if (count(channel).getAndIncrement() == 0) {
+            apply(channel);
+        }
+    }
+
+    /**
+     * 恢复读取，所有暂停都恢复后继续读取
+     *
+     * @param channel
+     */
+    public static void resume(Channel channel) {
+        AtomicInteger count = count(channel);
+        int value = count.decrementAndGet();
+        if (value < 0) {
+            // 未暂停时恢复，忽略
+            count.incrementAndGet();
+        } else if (value == 0) {
+            apply(channel);
+        }
+    }
+
+    /**
+     * @return 是否被暂停读取
+     */
+    public static boolean isPaused(Channel channel) {
+        AtomicInteger count = channel.attr(PAUSE_COUNT).get();
+        return count != null && count.get() > 0;
+    }
+
+    private static AtomicInteger count(Channel channel) {
+        Attribute<AtomicInteger> attr = channel.attr(PAUSE_COUNT);
+        AtomicInteger count = attr.get();
+        if (count == null) {
+            AtomicInteger old = attr.setIfAbsent(count = new AtomicInteger());
+            if (old != null) {
+                count = old;
+            }
+        }
+        return count;
+    }
+
+    private static void apply(Channel channel) {
+        if (channel.eventLoop().inEventLoop()) {
+            channel.config().setAutoRead(count(channel).get() == 0);
+        } else {
+            channel.eventLoop().execute(() -> apply(channel));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.jzy.javalib.network.netty;
+
+import com.jzy.javalib.network.scene.AbstractScene;
+import com.jzy.javalib.network.scene.Scene;
+import com.jzy.javalib.network.scene.SceneOverloadListener;
+import io.netty.channel.Channel;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * 场景过载时暂停读取连接消息，恢复后继续读取
+ * <br>
+ * 添加到{@link AbstractScene#addOverloadListener(SceneOverloadListener)}，向场景提交消息的连接调用{@link #add(Channel)}；
+ * 可添加到多个场景，所有场景都恢复后才继续读取。暂停通过{@link ChannelReadPause} 计数，和其他背压互不覆盖
+ *
+ * @author jzyong
+ * @mail 359135103@qq.com
+ */
+public class ChannelReadThrottle implements SceneOverloadListener {
+
+    //连接、过载场景只在锁内修改，暂停和恢复成对执行
+    private final Set<Channel> channels = new HashSet<>();
+
+    private final Set<Scene> overloadedScenes = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * 添加连接，关闭后自动移除
+     *
+     * @param channel
+     */
+    public void add(Channel channel) {
+        synchronized (this) {
+            if (!channels.add(channel)) {
+                return;
+            }
+            if (!overloadedScenes.isEmpty()) {
+                ChannelReadPause.pause(channel);
+            }
+        }
+        channel.closeFuture().addListener(f -> remove(channel));
+    }
+
+    public synchronized void remove(Channel channel) {
+        if (channels.remove(channel) && !overloadedScenes.isEmpty()) {
+            ChannelReadPause.resume(channel);
+        }
+    }
+
+    @Override
+    public synchronized void onOverload(Scene scene) {
+        boolean first = overloadedScenes.isEmpty();
+        if (overloadedScenes.add(scene) && first) {
+            channels.forEach(ChannelReadPause::pause);
+        }
+    }
+
+    @Override
+    public synchronized void onRecover(Scene scene) {
+        if (overloadedScenes.remove(scene) && overloadedScenes.isEmpty()) {
+            channels.forEach(ChannelReadPause::resume);
+        }
+    }
+
+    public synchronized boolean isOverloaded() {
+        return !overloadedScenes.isEmpty();
+    }
+}
@@ -0,0 +1,173 @@
+package com.jzy.javalib.network.netty;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.internal.ObjectUtil;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 合并flush，减少系统调用
+ * <br>
+ * 读取消息过程中的flush延迟到{@link #channelReadComplete(ChannelHandlerContext)}；其他flush延迟到本次EventLoop任务执行完，
+ * 或延迟指定微秒；累计flush次数达到上限立即flush。需添加在pipeline最前面，业务中仍然调用writeAndFlush
+ *
+ * @author jzyong
+ * @mail 359135103@qq.com
+ */
+public class FlushCoalescingHandler extends ChannelDuplexHandler {
+
+    /**
+     * 默认累计flush次数
+     */
+    public static final int DEFAULT_FLUSH_AFTER_MESSAGES = 16;
+
+    private final int flushAfterMessages;
+
+    private final long flushDelayNanos;
+
+    private final Runnable flushTask;
+
+    private ChannelHandlerContext ctx;
+
+    //未执行的flush次数
+    private int pendingFlushes;
+
+    private boolean readInProgress;
+
+    private boolean flushScheduled;
+
+    private Future<?> scheduledFlush;
+
+    public FlushCoalescingHandler() {
+        this(DEFAULT_FLUSH_AFTER_MESSAGES, 0);
+    }
+
+    /**
+     * @param flushAfterMessages 累计flush次数，达到后立即flush
+     * @param flushDelayMicros   flush最大延迟微秒，0在本次EventLoop任务执行完后flush
+     */
+    public FlushCoalescingHandler(int flushAfterMessages, int flushDelayMicros) {
+        this.flushAfterMessages = ObjectUtil.checkPositive(flushAfterMessages, "flushAfterMessages");
+        this.flushDelayNanos = TimeUnit.MICROSECONDS.toNanos(
+                ObjectUtil.checkPositiveOrZero(flushDelayMicros, "flushDelayMicros"));
+        this.flushTask = () -> {
+            flushScheduled = false;
+            scheduledFlush = null;
+            if (pendingFlushes > 0 && !readInProgress) {
+                flushNow(ctx);
+            }
+        };
+    }
+
+    /**
+     * 在用户pipeline前添加合并flush
+     *
+     * @param initializer        用户pipeline
+     * @param flushAfterMessages
+     * @param flushDelayMicros
+     * @return
+     */
+    public static <C extends Channel> ChannelHandler initializer(ChannelHandler initializer, int flushAfterMessages,
+                                                                 int flushDelayMicros) {
+        ObjectUtil.checkNotNull(initializer, "initializer");
+        return new ChannelInitializer<C>() {
+            @Override
+            protected void initChannel(C ch) {
+                ch.pipeline().addLast(new FlushCoalescingHandler(flushAfterMessages, flushDelayMicros), initializer);
+            }
+        };
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) {
+        if (++pendingFlushes >= flushAfterMessages) {
+            flushNow(ctx);
+        } else if (!readInProgress) {
+            scheduleFlush(ctx);
+        }
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        readInProgress = true;
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+        readInProgress = false;
+        flushIfNeeded(ctx);
+        ctx.fireChannelReadComplete();
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+        if (!ctx.channel().isWritable()) {
+            // 发送缓冲区满，尽快写出
+            flushIfNeeded(ctx);
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        flushIfNeeded(ctx);
+        ctx.fireExceptionCaught(cause);
+    }
+
+    @Override
+    public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise) {
+        flushIfNeeded(ctx);
+        ctx.disconnect(promise);
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) {
+        flushIfNeeded(ctx);
+        ctx.close(promise);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        flushIfNeeded(ctx);
+    }
+
+    private void scheduleFlush(ChannelHandlerContext ctx) {
+        if (flushScheduled) {
+            return;
+        }
+        flushScheduled = true;
+        if (flushDelayNanos > 0) {
+            scheduledFlush = ctx.executor().schedule(flushTask, flushDelayNanos, TimeUnit.NANOSECONDS);
+        } else {
+            ctx.executor().execute(flushTask);
+        }
+    }
+
+    private void flushIfNeeded(ChannelHandlerContext ctx) {
+        if (pendingFlushes > 0) {
+            flushNow(ctx);
+        }
+    }
+
+    private void flushNow(ChannelHandlerContext ctx) {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+            flushScheduled = false;
+        }
+        pendingFlushes = 0;
+        ctx.flush();
+    }
+}
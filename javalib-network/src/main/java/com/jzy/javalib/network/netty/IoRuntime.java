@@ -0,0 +1,184 @@
+package com.jzy.javalib.network.netty;
+
+import com.jzy.javalib.network.netty.config.IoRuntimeConfig;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 进程共享io线程，TcpServer、HttpServer、TcpClient配置sharedEventLoop后共用，grpc服务器和客户端共用一组线程
+ * <br>
+ * grpc使用shade的netty，不能和其他连接共用线程，单独一组
+ *
+ * @author jzyong
+ * @mail 359135103@qq.com
+ */
+public final class IoRuntime {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IoRuntime.class);
+
+    private static volatile IoRuntime instance;
+
+    private final IoRuntimeConfig config;
+
+    private final NettyTransport transport;
+
+    private final EventLoopGroup bossGroup;
+
+    private final int bossThreads;
+
+    private final EventLoopGroup workerGroup;
+
+    private volatile io.grpc.netty.shaded.io.netty.channel.EventLoopGroup grpcGroup;
+
+    private IoRuntime(IoRuntimeConfig config) {
+        this.config = config;
+        this.transport = NettyTransport.select(config.isNativeTransport());
+        int workerThreads = config.getWorkerThreads() > 0 ? config.getWorkerThreads()
+                : io.netty.util.NettyRuntime.availableProcessors();
+        this.bossThreads = Math.max(1, config.getBossThreads());
+        this.bossGroup = newGroup(bossThreads, "boss");
+        this.workerGroup = newGroup(workerThreads, "worker");
+        LOGGER.info("共享io线程 {} 传输：{} boss：{} worker：{}", config.getName(), transport,
+                bossThreads, workerThreads);
+    }
+
+    /**
+     * 初始化，在启动服务器和客户端之前调用，已初始化时忽略
+     *
+     * @param config
+     * @return
+     */
+    public static synchronized IoRuntime init(IoRuntimeConfig config) {
+        if (instance == null) {
+            instance = new IoRuntime(config);
+        } else {
+            LOGGER.warn("共享io线程已初始化，忽略配置");
+        }
+        return instance;
+    }
+
+    /**
+     * @return 未初始化时按默认配置初始化
+     */
+    public static IoRuntime getInstance() {
+        IoRuntime runtime = instance;
+        if (runtime != null) {
+            return runtime;
+        }
+        synchronized (IoRuntime.class) {
+            if (instance == null) {
+                instance = new IoRuntime(new IoRuntimeConfig());
+            }
+            return instance;
+        }
+    }
+
+    public static boolean isInitialized() {
+        return instance != null;
+    }
+
+    private EventLoopGroup newGroup(int threads, String type) {
+        EventLoopGroup group = transport.newEventLoopGroup(threads, threadFactory(type));
+        if (group instanceof NioEventLoopGroup) {
+            ((NioEventLoopGroup) group).setIoRatio(config.getIoRatio());
+        } else if (group instanceof EpollEventLoopGroup) {
+            ((EpollEventLoopGroup) group).setIoRatio(config.getIoRatio());
+        }
+        return group;
+    }
+
+    private ThreadFactory threadFactory(String type) {
+        ThreadFactory threadFactory = config.getThreadFactory();
+        if (threadFactory == null) {
+            return new DefaultThreadFactory(config.getName() + "-" + type);
+        }
+        // 自定义线程工厂，如绑核，设置线程名
+        String prefix = config.getName() + "-" + type + "-";
+        AtomicInteger index = new AtomicInteger();
+        return r -> {
+            Thread thread = threadFactory.newThread(r);
+            thread.setName(prefix + index.incrementAndGet());
+            return thread;
+        };
+    }
+
+    /**
+     * grpc io线程，首次使用时创建
+     */
+    public io.grpc.netty.shaded.io.netty.channel.EventLoopGroup getGrpcGroup() {
+        io.grpc.netty.shaded.io.netty.channel.EventLoopGroup group = grpcGroup;
+        if (group != null) {
+            return group;
+        }
+        synchronized (this) {
+            if (grpcGroup == null) {
+                int threads = config.getGrpcThreads() > 0 ? config.getGrpcThreads()
+                        : Math.max(1, io.netty.util.NettyRuntime.availableProcessors() / 2);
+                grpcGroup = new io.grpc.netty.shaded.io.netty.channel.nio.NioEventLoopGroup(threads,
+                        threadFactory("grpc"));
+            }
+            return grpcGroup;
+        }
+    }
+
+    public NettyTransport getTransport() {
+        return transport;
+    }
+
+    public EventLoopGroup getBossGroup() {
+        return bossGroup;
+    }
+
+    /**
+     * 服务器获取共享接收线程，绑定次数超过接收线程数时多个监听socket共用线程，SO_REUSEPORT起不到分摊作用
+     *
+     * @param bindCount  服务器绑定次数
+     * @param serverName 服务器名称
+     * @return
+     */
+    public EventLoopGroup getBossGroup(int bindCount, String serverName) {
+        if (bindCount > bossThreads) {
+            LOGGER.warn("服务器 {} 绑定{}次，共享接收线程只有{}个，需增大IoRuntimeConfig.bossThreads", serverName,
+                    bindCount, bossThreads);
+        }
+        return bossGroup;
+    }
+
+    public int getBossThreads() {
+        return bossThreads;
+    }
+
+    public EventLoopGroup getWorkerGroup() {
+        return workerGroup;
+    }
+
+    public IoRuntimeConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * 关闭所有共享线程，关服时调用
+     */
+    public static synchronized void shutdown() {
+        IoRuntime runtime = instance;
+        if (runtime == null) {
+            return;
+        }
+        instance = null;
+        Future<?> boss = runtime.bossGroup.shutdownGracefully();
+        Future<?> worker = runtime.workerGroup.shutdownGracefully();
+        if (runtime.grpcGroup != null) {
+            runtime.grpcGroup.shutdownGracefully().syncUninterruptibly();
+        }
+        boss.syncUninterruptibly();
+        worker.syncUninterruptibly();
+        LOGGER.info("关服：关闭共享io线程");
+    }
+}
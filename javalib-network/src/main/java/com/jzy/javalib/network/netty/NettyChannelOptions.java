@@ -0,0 +1,121 @@
+package com.jzy.javalib.network.netty;
+
+import com.jzy.javalib.network.netty.config.NettyClientConfig;
+import com.jzy.javalib.network.netty.config.NettyServerConfig;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.AdaptiveRecvByteBufAllocator;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.WriteBufferWaterMark;
+
+/**
+ * 连接内存相关参数：ByteBuf分配器、读取缓冲大小、发送缓冲水位
+ *
+ * @author jzyong
+ * @mail 359135103@qq.com
+ */
+public final class NettyChannelOptions {
+
+    /**
+     * 池化堆内存分配器，多个服务共用
+     */
+    private static volatile PooledByteBufAllocator pooledHeapAllocator;
+
+    private NettyChannelOptions() {
+    }
+
+    /**
+     * 设置服务器接收连接的参数
+     *
+     * @param boot
+     * @param config
+     */
+    public static void configure(ServerBootstrap boot, NettyServerConfig config) {
+        ByteBufAllocator allocator = allocator(config.isPooledAllocator(), config.isPreferDirect());
+        boot.option(ChannelOption.ALLOCATOR, allocator);
+        boot.childOption(ChannelOption.ALLOCATOR, allocator);
+        boot.childOption(ChannelOption.RCVBUF_ALLOCATOR, recvAllocator(config.isAdaptiveReceiveBuffer(),
+                config.getReceiveBufferMinimum(), config.getReceiveBufferInitial(), config.getReceiveBufferMaximum()));
+        boot.childOption(ChannelOption.WRITE_BUFFER_WATER_MARK,
+                new WriteBufferWaterMark(config.getWriteBufferLowWaterMark(), config.getWriteBufferHighWaterMark()));
+    }
+
+    /**
+     * 设置客户端连接的参数
+     *
+     * @param boot
+     * @param config
+     */
+    public static void configure(Bootstrap boot, NettyClientConfig config) {
+        boot.option(ChannelOption.ALLOCATOR, allocator(config.isPooledAllocator(), config.isPreferDirect()));
+        boot.option(ChannelOption.RCVBUF_ALLOCATOR, recvAllocator(config.isAdaptiveReceiveBuffer(),
+                config.getReceiveBufferMinimum(), config.getReceiveBufferInitial(), config.getReceiveBufferMaximum()));
+        boot.option(ChannelOption.WRITE_BUFFER_WATER_MARK,
+                new WriteBufferWaterMark(config.getWriteBufferLowWaterMark(), config.getWriteBufferHighWaterMark()));
+    }
+
+    /**
+     * 服务器连接pipeline，按配置在用户pipeline前添加背压处理
+     *
+     * @param initializer
+     * @param config
+     * @return
+     */
+    public static ChannelHandler initializer(ChannelHandler initializer, NettyServerConfig config) {
+        if (!config.isPauseReadWhenUnwritable() && config.getUnwritableCloseMillis() <= 0) {
+            return initializer;
+        }
+        return WritabilityHandler.initializer(initializer, config.isPauseReadWhenUnwritable(),
+                Math.max(0, config.getUnwritableCloseMillis()));
+    }
+
+    /**
+     * 客户端连接pipeline，按配置在用户pipeline前添加背压处理
+     *
+     * @param initializer
+     * @param config
+     * @return
+     */
+    public static ChannelHandler initializer(ChannelHandler initializer, NettyClientConfig config) {
+        if (!config.isPauseReadWhenUnwritable() && config.getUnwritableCloseMillis() <= 0) {
+            return initializer;
+        }
+        return WritabilityHandler.initializer(initializer, config.isPauseReadWhenUnwritable(),
+                Math.max(0, config.getUnwritableCloseMillis()));
+    }
+
+    /**
+     * @param pooled       是否池化
+     * @param preferDirect 是否优先使用直接内存
+     * @return
+     */
+    public static ByteBufAllocator allocator(boolean pooled, boolean preferDirect) {
+        if (!pooled) {
+            return preferDirect ? UnpooledByteBufAllocator.DEFAULT : new UnpooledByteBufAllocator(false);
+        }
+        if (preferDirect) {
+            return PooledByteBufAllocator.DEFAULT;
+        }
+        PooledByteBufAllocator allocator = pooledHeapAllocator;
+        if (allocator == null) {
+            synchronized (NettyChannelOptions.class) {
+                allocator = pooledHeapAllocator;
+                if (allocator == null) {
+                    allocator = pooledHeapAllocator = new PooledByteBufAllocator(false);
+                }
+            }
+        }
+        return allocator;
+    }
+
+    private static RecvByteBufAllocator recvAllocator(boolean adaptive, int minimum, int initial, int maximum) {
+        return adaptive ? new AdaptiveRecvByteBufAllocator(minimum, initial, maximum)
+                : new FixedRecvByteBufAllocator(initial);
+    }
+}
@@ -0,0 +1,148 @@
+package com.jzy.javalib.network.netty;
+
+import com.jzy.javalib.network.netty.config.NettyClientConfig;
+import com.jzy.javalib.network.netty.config.NettyServerConfig;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollMode;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 网络传输实现，linux下可用时使用epoll，否则使用nio
+ *
+ * @author jzyong
+ * @mail 359135103@qq.com
+ */
+public enum NettyTransport {
+    NIO {
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+            return new NioEventLoopGroup(threads, threadFactory);
+        }
+
+        @Override
+        public Class<? extends ServerChannel> serverChannelClass() {
+            return NioServerSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends SocketChannel> channelClass() {
+            return NioSocketChannel.class;
+        }
+    },
+    EPOLL {
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+            return new EpollEventLoopGroup(threads, threadFactory);
+        }
+
+        @Override
+        public Class<? extends ServerChannel> serverChannelClass() {
+            return EpollServerSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends SocketChannel> channelClass() {
+            return EpollSocketChannel.class;
+        }
+
+        @Override
+        public int bindCount(NettyServerConfig config) {
+            return config.isReusePort() ? Math.max(1, config.getAcceptorCount()) : 1;
+        }
+
+        @Override
+        public void configure(ServerBootstrap boot, NettyServerConfig config) {
+            super.configure(boot, config);
+            EpollMode mode = epollMode(config.isEdgeTriggered());
+            boot.option(EpollChannelOption.EPOLL_MODE, mode);
+            boot.childOption(EpollChannelOption.EPOLL_MODE, mode);
+            if (config.isReusePort()) {
+                boot.option(EpollChannelOption.SO_REUSEPORT, true);
+            }
+        }
+
+        @Override
+        public void configure(Bootstrap boot, NettyClientConfig config) {
+            super.configure(boot, config);
+            boot.option(EpollChannelOption.EPOLL_MODE, epollMode(config.isEdgeTriggered()));
+        }
+
+        private EpollMode epollMode(boolean edgeTriggered) {
+            return edgeTriggered ? EpollMode.EDGE_TRIGGERED : EpollMode.LEVEL_TRIGGERED;
+        }
+    };
+
+    /**
+     * 选择传输实现
+     *
+     * @param nativeTransport 是否优先使用epoll
+     * @return epoll不可用时返回nio
+     */
+    public static NettyTransport select(boolean nativeTransport) {
+        return nativeTransport && Epoll.isAvailable() ? EPOLL : NIO;
+    }
+
+    /**
+     * @param threads 线程数，0为默认cpu核数*2
+     * @param name    线程名称
+     * @return
+     */
+    public EventLoopGroup newEventLoopGroup(int threads, String name) {
+        return newEventLoopGroup(threads, new DefaultThreadFactory(name));
+    }
+
+    /**
+     * @param threads       线程数，0为默认cpu核数*2
+     * @param threadFactory
+     * @return
+     */
+    public abstract EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory);
+
+    public abstract Class<? extends ServerChannel> serverChannelClass();
+
+    public abstract Class<? extends SocketChannel> channelClass();
+
+    /**
+     * 服务器绑定次数，epoll开启SO_REUSEPORT时多次绑定同一端口，nio为1
+     *
+     * @param config
+     * @return
+     */
+    public int bindCount(NettyServerConfig config) {
+        return 1;
+    }
+
+    /**
+     * 设置channel类型和传输相关参数
+     *
+     * @param boot
+     * @param config
+     */
+    public void configure(ServerBootstrap boot, NettyServerConfig config) {
+        boot.channel(serverChannelClass());
+    }
+
+    /**
+     * 设置channel类型和传输相关参数
+     *
+     * @param boot
+     * @param config
+     */
+    public void configure(Bootstrap boot, NettyClientConfig config) {
+        boot.channel(channelClass());
+    }
+}
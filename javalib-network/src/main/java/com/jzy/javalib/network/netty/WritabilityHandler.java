@@ -0,0 +1,122 @@
+package com.jzy.javalib.network.netty;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.util.internal.ObjectUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 发送缓冲背压，超过高水位channel不可写时暂停读取，不再处理请求产生新回复；低于低水位恢复读取
+ * <br>
+ * 持续不可写超过指定时间认为是慢客户端，关闭连接释放发送缓冲；暂停读取通过{@link ChannelReadPause} 计数，和场景过载暂停互不覆盖
+ *
+ * @author jzyong
+ * @mail 359135103@qq.com
+ */
+public class WritabilityHandler extends ChannelInboundHandlerAdapter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WritabilityHandler.class);
+
+    private final boolean pauseRead;
+
+    private final long closeMillis;
+
+    private Future<?> closeFuture;
+
+    //是否由本handler暂停读取
+    private boolean readPaused;
+
+    /**
+     * @param pauseRead   不可写时是否暂停读取
+     * @param closeMillis 持续不可写超过毫秒后关闭连接，0不关闭
+     */
+    public WritabilityHandler(boolean pauseRead, int closeMillis) {
+        this.pauseRead = pauseRead;
+        this.closeMillis = ObjectUtil.checkPositiveOrZero(closeMillis, "closeMillis");
+    }
+
+    /**
+     * 在用户pipeline前添加背压处理
+     *
+     * @param initializer 用户pipeline
+     * @param pauseRead
+     * @param closeMillis
+     * @return
+     */
+    public static <C extends Channel> ChannelHandler initializer(ChannelHandler initializer, boolean pauseRead,
+                                                                 int closeMillis) {
+        ObjectUtil.checkNotNull(initializer, "initializer");
+        return new ChannelInitializer<C>() {
+            @Override
+            protected void initChannel(C ch) {
+                ch.pipeline().addLast(new WritabilityHandler(pauseRead, closeMillis), initializer);
+            }
+        };
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+        Channel channel = ctx.channel();
+        if (channel.isWritable()) {
+            resume(channel);
+        } else {
+            pause(ctx);
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) {
+        cancelClose();
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        cancelClose();
+        if (readPaused) {
+            readPaused = false;
+            ChannelReadPause.resume(ctx.channel());
+        }
+    }
+
+    private void pause(ChannelHandlerContext ctx) {
+        Channel channel = ctx.channel();
+        if (pauseRead && !readPaused) {
+            readPaused = true;
+            ChannelReadPause.pause(channel);
+        }
+        if (closeMillis > 0 && closeFuture == null) {
+            closeFuture = ctx.executor().schedule(() -> {
+                closeFuture = null;
+                if (!channel.isWritable()) {
+                    LOGGER.warn("{} 持续{}ms不可写，待发送：{}字节，关闭连接", channel, closeMillis,
+                            channel.unsafe().outboundBuffer() == null ? 0
+                                    : channel.unsafe().outboundBuffer().totalPendingWriteBytes());
+                    channel.close();
+                }
+            }, closeMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void resume(Channel channel) {
+        cancelClose();
+        if (readPaused) {
+            readPaused = false;
+            ChannelReadPause.resume(channel);
+        }
+    }
+
+    private void cancelClose() {
+        if (closeFuture != null) {
+            closeFuture.cancel(false);
+            closeFuture = null;
+        }
+    }
+}
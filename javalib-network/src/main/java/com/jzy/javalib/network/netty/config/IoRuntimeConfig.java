@@ -0,0 +1,89 @@
+package com.jzy.javalib.network.netty.config;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 进程共享io线程配置，见IoRuntime
+ *
+ * @author JiangZhiYong
+ * @mail 359135103@qq.com
+ */
+public class IoRuntimeConfig {
+
+    /**名称，线程名前缀*/
+    private String name = "io";
+
+    /**linux下是否使用epoll，不可用时使用nio*/
+    private boolean nativeTransport = true;
+
+    /**接收连接线程数，服务器开启SO_REUSEPORT时不小于各服务器绑定次数的最大值*/
+    private int bossThreads = 1;
+
+    /**io线程数，0为cpu核数*/
+    private int workerThreads = 0;
+
+    /**grpc io线程数，0为cpu核数的一半*/
+    private int grpcThreads = 0;
+
+    /**io事件和任务执行时间比例，1-100*/
+    private int ioRatio = 50;
+
+    /**线程工厂，可设置绑核（如affinity线程工厂），null使用默认*/
+    private ThreadFactory threadFactory;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public boolean isNativeTransport() {
+        return nativeTransport;
+    }
+
+    public void setNativeTransport(boolean nativeTransport) {
+        this.nativeTransport = nativeTransport;
+    }
+
+    public int getBossThreads() {
+        return bossThreads;
+    }
+
+    public void setBossThreads(int bossThreads) {
+        this.bossThreads = bossThreads;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
+    public int getGrpcThreads() {
+        return grpcThreads;
+    }
+
+    public void setGrpcThreads(int grpcThreads) {
+        this.grpcThreads = grpcThreads;
+    }
+
+    public int getIoRatio() {
+        return ioRatio;
+    }
+
+    public void setIoRatio(int ioRatio) {
+        this.ioRatio = ioRatio;
+    }
+
+    public ThreadFactory getThreadFactory() {
+        return threadFactory;
+    }
+
+    public void setThreadFactory(ThreadFactory threadFactory) {
+        this.threadFactory = threadFactory;
+    }
+}
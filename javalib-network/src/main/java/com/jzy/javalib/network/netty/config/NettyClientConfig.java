@@ -31,11 +31,71 @@ public class NettyClientConfig {
     /**端口*/
     private int port=8000;
 
-    /**连接数*/
+    /**连接数，连接池大小，每个连接断开后单独重连*/
     private int connectCount=1;
 
+    /**重连初始延迟毫秒，连续失败时翻倍*/
+    private int reconnectMinDelayMillis = 200;
+
+    /**重连最大延迟毫秒*/
+    private int reconnectMaxDelayMillis = 30000;
+
+    /**请求等待回复超时毫秒，见TcpClient#request*/
+    private int requestTimeoutMillis = 10000;
+
     private Object channelParam;
 
+    /**是否使用进程共享io线程，见IoRuntime，使用时忽略传输和线程数配置*/
+    private boolean sharedEventLoop = false;
+
+    /**linux下是否使用epoll，不可用时使用nio*/
+    private boolean nativeTransport = true;
+
+    /**io线程数，0为cpu核数*2*/
+    private int workerThreads = 0;
+
+    /**epoll是否边缘触发*/
+    private boolean edgeTriggered = true;
+
+    /**是否使用池化ByteBuf分配器*/
+    private boolean pooledAllocator = true;
+
+    /**是否优先使用直接内存*/
+    private boolean preferDirect = true;
+
+    /**读取缓冲是否按读取量自适应大小，否则固定receiveBufferInitial*/
+    private boolean adaptiveReceiveBuffer = true;
+
+    /**读取缓冲最小值*/
+    private int receiveBufferMinimum = 64;
+
+    /**读取缓冲初始值*/
+    private int receiveBufferInitial = 2048;
+
+    /**读取缓冲最大值*/
+    private int receiveBufferMaximum = 65536;
+
+    /**发送缓冲低水位，低于后channel恢复可写*/
+    private int writeBufferLowWaterMark = 32 * 1024;
+
+    /**发送缓冲高水位，超过后channel不可写，见WritabilityHandler*/
+    private int writeBufferHighWaterMark = 128 * 1024;
+
+    /**不可写时是否暂停读取，两端都暂停可能互相等待，内部连接慎用*/
+    private boolean pauseReadWhenUnwritable = false;
+
+    /**持续不可写超过毫秒后关闭连接，0不关闭*/
+    private int unwritableCloseMillis = 0;
+
+    /**是否合并flush，见FlushCoalescingHandler*/
+    private boolean flushConsolidation = false;
+
+    /**合并flush时，累计flush次数达到后立即flush*/
+    private int flushAfterMessages = 16;
+
+    /**合并flush时，最大延迟微秒，0为当前EventLoop任务执行完后flush*/
+    private int flushDelayMicros = 0;
+
     public String getName() {
         return name;
     }
@@ -110,6 +170,30 @@ public class NettyClientConfig {
         this.ip = ip;
     }
 
+    public int getReconnectMinDelayMillis() {
+        return reconnectMinDelayMillis;
+    }
+
+    public void setReconnectMinDelayMillis(int reconnectMinDelayMillis) {
+        this.reconnectMinDelayMillis = reconnectMinDelayMillis;
+    }
+
+    public int getReconnectMaxDelayMillis() {
+        return reconnectMaxDelayMillis;
+    }
+
+    public void setReconnectMaxDelayMillis(int reconnectMaxDelayMillis) {
+        this.reconnectMaxDelayMillis = reconnectMaxDelayMillis;
+    }
+
+    public int getRequestTimeoutMillis() {
+        return requestTimeoutMillis;
+    }
+
+    public void setRequestTimeoutMillis(int requestTimeoutMillis) {
+        this.requestTimeoutMillis = requestTimeoutMillis;
+    }
+
     public Object getChannelParam() {
         return channelParam;
     }
@@ -118,6 +202,142 @@ public class NettyClientConfig {
         this.channelParam = channelParam;
     }
 
+    public boolean isFlushConsolidation() {
+        return flushConsolidation;
+    }
+
+    public void setFlushConsolidation(boolean flushConsolidation) {
+        this.flushConsolidation = flushConsolidation;
+    }
+
+    public int getFlushAfterMessages() {
+        return flushAfterMessages;
+    }
+
+    public void setFlushAfterMessages(int flushAfterMessages) {
+        this.flushAfterMessages = flushAfterMessages;
+    }
+
+    public int getFlushDelayMicros() {
+        return flushDelayMicros;
+    }
+
+    public void setFlushDelayMicros(int flushDelayMicros) {
+        this.flushDelayMicros = flushDelayMicros;
+    }
+
+    public boolean isPooledAllocator() {
+        return pooledAllocator;
+    }
+
+    public void setPooledAllocator(boolean pooledAllocator) {
+        this.pooledAllocator = pooledAllocator;
+    }
+
+    public boolean isPreferDirect() {
+        return preferDirect;
+    }
+
+    public void setPreferDirect(boolean preferDirect) {
+        this.preferDirect = preferDirect;
+    }
+
+    public boolean isAdaptiveReceiveBuffer() {
+        return adaptiveReceiveBuffer;
+    }
+
+    public void setAdaptiveReceiveBuffer(boolean adaptiveReceiveBuffer) {
+        this.adaptiveReceiveBuffer = adaptiveReceiveBuffer;
+    }
+
+    public int getReceiveBufferMinimum() {
+        return receiveBufferMinimum;
+    }
+
+    public void setReceiveBufferMinimum(int receiveBufferMinimum) {
+        this.receiveBufferMinimum = receiveBufferMinimum;
+    }
+
+    public int getReceiveBufferInitial() {
+        return receiveBufferInitial;
+    }
+
+    public void setReceiveBufferInitial(int receiveBufferInitial) {
+        this.receiveBufferInitial = receiveBufferInitial;
+    }
+
+    public int getReceiveBufferMaximum() {
+        return receiveBufferMaximum;
+    }
+
+    public void setReceiveBufferMaximum(int receiveBufferMaximum) {
+        this.receiveBufferMaximum = receiveBufferMaximum;
+    }
+
+    public int getWriteBufferLowWaterMark() {
+        return writeBufferLowWaterMark;
+    }
+
+    public void setWriteBufferLowWaterMark(int writeBufferLowWaterMark) {
+        this.writeBufferLowWaterMark = writeBufferLowWaterMark;
+    }
+
+    public int getWriteBufferHighWaterMark() {
+        return writeBufferHighWaterMark;
+    }
+
+    public void setWriteBufferHighWaterMark(int writeBufferHighWaterMark) {
+        this.writeBufferHighWaterMark = writeBufferHighWaterMark;
+    }
+
+    public boolean isPauseReadWhenUnwritable() {
+        return pauseReadWhenUnwritable;
+    }
+
+    public void setPauseReadWhenUnwritable(boolean pauseReadWhenUnwritable) {
+        this.pauseReadWhenUnwritable = pauseReadWhenUnwritable;
+    }
+
+    public int getUnwritableCloseMillis() {
+        return unwritableCloseMillis;
+    }
+
+    public void setUnwritableCloseMillis(int unwritableCloseMillis) {
+        this.unwritableCloseMillis = unwritableCloseMillis;
+    }
+
+    public boolean isSharedEventLoop() {
+        return sharedEventLoop;
+    }
+
+    public void setSharedEventLoop(boolean sharedEventLoop) {
+        this.sharedEventLoop = sharedEventLoop;
+    }
+
+    public boolean isNativeTransport() {
+        return nativeTransport;
+    }
+
+    public void setNativeTransport(boolean nativeTransport) {
+        this.nativeTransport = nativeTransport;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
+    public boolean isEdgeTriggered() {
+        return edgeTriggered;
+    }
+
+    public void setEdgeTriggered(boolean edgeTriggered) {
+        this.edgeTriggered = edgeTriggered;
+    }
+
     @Override
     public String toString() {
         return String.format("%s:%d",ip,port);
@@ -1,18 +1,21 @@
 package com.jzy.javalib.network.netty.http;
 
+import com.jzy.javalib.network.netty.IoRuntime;
+import com.jzy.javalib.network.netty.NettyChannelOptions;
+import com.jzy.javalib.network.netty.NettyTransport;
 import com.jzy.javalib.network.netty.config.NettyServerConfig;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.GenericFutureListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 
 /**
@@ -64,12 +67,26 @@ public class HttpServer {
             } catch (Exception ex) {
                 LOGGER.error("close http server", ex);
             } finally {
-                workerGroup.shutdownGracefully();
-                bossGroup.shutdownGracefully();
+                shutdownGroups();
             }
         }
     }
 
+    /**
+     * 关闭io线程，共享线程由IoRuntime关闭
+     */
+    private void shutdownGroups() {
+        if (nettyServerConfig.isSharedEventLoop()) {
+            return;
+        }
+        if (workerGroup != null) {
+            workerGroup.shutdownGracefully();
+        }
+        if (bossGroup != null) {
+            bossGroup.shutdownGracefully();
+        }
+    }
+
     /**
      * 绑定http 服务
      */
@@ -79,15 +96,35 @@ public class HttpServer {
 
         @Override
         public void run() {
-            bossGroup = new NioEventLoopGroup();
-            workerGroup = new NioEventLoopGroup();
+            NettyTransport transport;
+            int bindCount;
+            if (nettyServerConfig.isSharedEventLoop()) {
+                IoRuntime ioRuntime = IoRuntime.getInstance();
+                transport = ioRuntime.getTransport();
+                bindCount = transport.bindCount(nettyServerConfig);
+                bossGroup = ioRuntime.getBossGroup(bindCount, nettyServerConfig.getName());
+                workerGroup = ioRuntime.getWorkerGroup();
+            } else {
+                transport = NettyTransport.select(nettyServerConfig.isNativeTransport());
+                bindCount = transport.bindCount(nettyServerConfig);
+                String name = nettyServerConfig.getName();
+                bossGroup = transport.newEventLoopGroup(Math.max(nettyServerConfig.getBossThreads(), bindCount),
+                        name + "-http-boss");
+                workerGroup = transport.newEventLoopGroup(nettyServerConfig.getWorkerThreads(), name + "-http-io");
+            }
             try {
                 ServerBootstrap b = new ServerBootstrap();
-                b.group(bossGroup, workerGroup).channel(NioServerSocketChannel.class)
-                        .childHandler(channelInitializer)
+                b.group(bossGroup, workerGroup)
+                        .childHandler(NettyChannelOptions.initializer(channelInitializer, nettyServerConfig))
                         .option(ChannelOption.SO_BACKLOG, 128)
                         .childOption(ChannelOption.SO_KEEPALIVE, true);
-                channelFuture = b.bind(nettyServerConfig.getPort()).sync();
+                transport.configure(b, nettyServerConfig);
+                NettyChannelOptions.configure(b, nettyServerConfig);
+                List<ChannelFuture> bindFutures = new ArrayList<>(bindCount);
+                for (int i = 0; i < bindCount; i++) {
+                    bindFutures.add(b.bind(nettyServerConfig.getPort()).sync());
+                }
+                channelFuture = bindFutures.get(0);
                 channelFuture.addListener(new GenericFutureListener<Future<? super Void>>() {
                     @Override
                     public void operationComplete(Future<? super Void> future) throws Exception {
@@ -99,12 +136,13 @@ public class HttpServer {
                     }
                 });
 
-                channelFuture.channel().closeFuture().sync();
+                for (ChannelFuture bindFuture : bindFutures) {
+                    bindFuture.channel().closeFuture().sync();
+                }
             } catch (InterruptedException ex) {
                 LOGGER.error("HTTP 服务绑定",ex);
             } finally {
-                workerGroup.shutdownGracefully();
-                bossGroup.shutdownGracefully();
+                shutdownGroups();
             }
         }
     }
@@ -0,0 +1,250 @@
+package com.jzy.javalib.network.netty.tcp;
+
+import com.google.protobuf.Message;
+import com.jzy.javalib.network.io.message.IdMessage;
+import com.jzy.javalib.network.io.message.InnerFrame;
+import com.jzy.javalib.network.io.message.MsgUtil;
+import io.netty.channel.Channel;
+import io.netty.util.ReferenceCountUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 连接路由表，只读快照，连接变化时整体替换
+ * <br>
+ * 按id一致性hash选择后端，再在后端的多个连接中按id选择，同一玩家固定到同一后端，重连后不变；
+ * 后端标识优先取连接属性{@link TcpService#RouteBackendKey}（如服务器id），没有时取远程ip（不含端口，接入连接的端口每次重连都不同），
+ * 同一ip的多个进程没有设置属性时视为同一后端。
+ * 不按id时随机选两个连接取未发送字节少的。
+ * 不可写（发送缓冲超过高水位）或断开的连接跳过
+ * <br>
+ * 同一后端的固定连接池使用{@link #ofSlots(Channel[])}，按连接池位置选择，连接池未满或重连时id映射不变
+ *
+ * @author jzyong
+ * @mail 359135103@qq.com
+ */
+final class ChannelRouteTable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChannelRouteTable.class);
+
+    static final ChannelRouteTable EMPTY = new ChannelRouteTable(new Channel[0]);
+
+    /**
+     * 每个连接虚拟节点数
+     */
+    private static final int VIRTUAL_NODES = 64;
+
+    private final Channel[] channels;
+
+    /**
+     * 一致性hash环，值为同一后端的连接
+     */
+    private final TreeMap<Long, Channel[]> ring = new TreeMap<>();
+
+    private ChannelRouteTable(Channel[] channels) {
+        this.channels = channels;
+        Map<String, List<Channel>> backends = new LinkedHashMap<>();
+        for (Channel channel : channels) {
+            backends.computeIfAbsent(backendKey(channel), k -> new ArrayList<>()).add(channel);
+        }
+        // 虚拟节点按后端标识生成，重连后同一后端位置不变
+        backends.forEach((backend, list) -> {
+            Channel[] group = list.toArray(new Channel[0]);
+            long seed = (long) backend.hashCode() << 32;
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                ring.putIfAbsent(mix64(seed | i), group);
+            }
+        });
+    }
+
+    /**
+     * 同一后端的固定连接池，按位置选择
+     *
+     * @param slots 连接池，未连接的位置为null
+     */
+    private ChannelRouteTable(Channel[] channels, Channel[] slots) {
+        this.channels = channels;
+        ring.put(0L, slots);
+    }
+
+    static ChannelRouteTable of(List<Channel> channels) {
+        return channels.isEmpty() ? EMPTY : new ChannelRouteTable(channels.toArray(new Channel[0]));
+    }
+
+    /**
+     * 连接到同一后端的固定连接池
+     *
+     * @param slots 连接池，未连接的位置为null
+     */
+    static ChannelRouteTable ofSlots(Channel[] slots) {
+        List<Channel> list = new ArrayList<>(slots.length);
+        for (Channel channel : slots) {
+            if (channel != null) {
+                list.add(channel);
+            }
+        }
+        return list.isEmpty() ? EMPTY : new ChannelRouteTable(list.toArray(new Channel[0]), slots.clone());
+    }
+
+    /**
+     * 按id选择连接，连接不可用时顺时针选下一个可用连接
+     *
+     * @param id 角色|用户id
+     * @return 没有连接返回null
+     */
+    Channel route(long id) {
+        if (channels.length == 0) {
+            return null;
+        }
+        long hash = mix64(id);
+        Map.Entry<Long, Channel[]> entry = ring.ceilingEntry(hash);
+        if (entry == null) {
+            entry = ring.firstEntry();
+        }
+        Channel[] ownerGroup = entry.getValue();
+        Channel owner = select(ownerGroup, hash);
+        if (owner != null) {
+            return owner;
+        }
+        for (int i = 0; i < ring.size(); i++) {
+            entry = ring.higherEntry(entry.getKey());
+            if (entry == null) {
+                entry = ring.firstEntry();
+            }
+            Channel channel = select(entry.getValue(), hash);
+            if (channel != null) {
+                return channel;
+            }
+        }
+        // 都不可写时仍发给原后端
+        for (Channel channel : ownerGroup) {
+            if (channel != null && channel.isActive()) {
+                return channel;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 在后端的连接中按hash选择，不可用时选下一个
+     *
+     * @return 都不可用返回null
+     */
+    private static Channel select(Channel[] group, long hash) {
+        int start = (int) ((hash >>> 1) % group.length);
+        for (int i = 0; i < group.length; i++) {
+            Channel channel = group[(start + i) % group.length];
+            if (isHealthy(channel)) {
+                return channel;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 随机选两个连接，取可用且未发送字节少的；两个都不可用时顺序查找可用连接
+     *
+     * @return 没有连接返回null
+     */
+    Channel next() {
+        int count = channels.length;
+        if (count == 0) {
+            return null;
+        } else if (count == 1) {
+            return channels[0];
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int a = random.nextInt(count);
+        int b = random.nextInt(count - 1);
+        if (b >= a) {
+            b++;
+        }
+        Channel first = channels[a];
+        Channel second = channels[b];
+        boolean firstHealthy = isHealthy(first);
+        boolean secondHealthy = isHealthy(second);
+        if (firstHealthy != secondHealthy) {
+            return firstHealthy ? first : second;
+        }
+        if (firstHealthy) {
+            return first.bytesBeforeUnwritable() >= second.bytesBeforeUnwritable() ? first : second;
+        }
+        Channel channel = select(channels, a);
+        if (channel != null) {
+            return channel;
+        }
+        // 都不可写时选择未断开的
+        for (int i = 0; i < count; i++) {
+            channel = channels[(a + i) % count];
+            if (channel.isActive()) {
+                return channel;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * 发送服务器内部消息，{@link TcpService} 和{@link TcpClient} 共用；{@link IdMessage}、{@link InnerFrame} 按id固定连接，
+     * 其他消息选择负载低的连接
+     *
+     * @param msg
+     * @return false 没有可用连接，消息已释放
+     */
+    boolean sendMsg(Object msg) {
+        if (msg instanceof Message) {
+            return MsgUtil.sendInnerMsg(next(), (Message) msg, -1, -1);
+        }
+        long id = -1;
+        if (msg instanceof IdMessage) {
+            id = ((IdMessage) msg).getId();
+        } else if (msg instanceof InnerFrame) {
+            id = ((InnerFrame) msg).getId();
+        }
+        Channel channel = id > 0 ? route(id) : next();
+        if (channel == null || !channel.isActive()) {
+            LOGGER.warn("发送消息失败{}，无可用连接", msg.getClass().getSimpleName());
+            ReferenceCountUtil.release(msg);
+            return false;
+        }
+        channel.writeAndFlush(msg, channel.voidPromise());
+        return true;
+    }
+
+    int size() {
+        return channels.length;
+    }
+
+    /**
+     * 后端标识，重连后不变
+     */
+    private static String backendKey(Channel channel) {
+        Object backend = channel.hasAttr(TcpService.RouteBackendKey)
+                ? channel.attr(TcpService.RouteBackendKey).get() : null;
+        if (backend != null) {
+            return String.valueOf(backend);
+        }
+        SocketAddress address = channel.remoteAddress();
+        if (address instanceof InetSocketAddress) {
+            return ((InetSocketAddress) address).getHostString();
+        }
+        return String.valueOf(address);
+    }
+
+    private static boolean isHealthy(Channel channel) {
+        return channel != null && channel.isActive() && channel.isWritable();
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+}
@@ -0,0 +1,180 @@
+package com.jzy.javalib.network.netty.tcp;
+
+import com.jzy.javalib.network.scene.Scene;
+import io.netty.channel.Channel;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 等待回复的请求，按消息序号匹配回复
+ * <br>
+ * 请求序号为负数，和网关转发的客户端序号区分（{@link com.jzy.javalib.network.io.message.ClientFrameDecoder} 拒绝负数序号）；
+ * 超时由所有客户端共用的时间轮检查
+ *
+ * @author jzyong
+ * @mail 359135103@qq.com
+ */
+final class PendingRequestTable {
+
+    /**
+     * 超时检查时间轮，第一次发送请求时创建
+     */
+    private static final class TimerHolder {
+        static final HashedWheelTimer TIMER = new HashedWheelTimer(
+                new DefaultThreadFactory("tcp-request-timer", true), 10, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 等待回复的请求 key：消息序号
+     */
+    private final Map<Integer, PendingRequest> pending = new ConcurrentHashMap<>();
+
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    /**
+     * 分配请求序号
+     *
+     * @return 负数
+     */
+    int nextSequence() {
+        for (;;) {
+            int seq = sequence.incrementAndGet() | Integer.MIN_VALUE;
+            if (!pending.containsKey(seq)) {
+                return seq;
+            }
+        }
+    }
+
+    /**
+     * 添加等待回复的请求
+     *
+     * @param seq           请求序号
+     * @param channel       发送连接，断开时请求失败
+     * @param scene         在场景线程中完成，null在io线程中完成
+     * @param timeoutMillis 超时毫秒
+     * @return
+     */
+    <T> CompletableFuture<T> add(int seq, Channel channel, Scene scene, long timeoutMillis) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        PendingRequest request = new PendingRequest(seq, channel, scene, future);
+        pending.put(seq, request);
+        request.timeout = TimerHolder.TIMER.newTimeout(t -> {
+            if (pending.remove(seq, request)) {
+                request.fail(new TimeoutException("请求超时：" + timeoutMillis + "ms 序号：" + seq));
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    /**
+     * 取出等待回复的请求
+     *
+     * @param seq
+     * @return 不是请求的回复或已超时返回null
+     */
+    PendingRequest remove(int seq) {
+        if (seq >= 0 || pending.isEmpty()) {
+            return null;
+        }
+        return pending.remove(seq);
+    }
+
+    /**
+     * 请求失败，如发送失败
+     */
+    void fail(int seq, Throwable cause) {
+        PendingRequest request = pending.remove(seq);
+        if (request != null) {
+            request.fail(cause);
+        }
+    }
+
+    /**
+     * 连接断开，连接上的请求都失败
+     */
+    void failAll(Channel channel, Throwable cause) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        pending.values().removeIf(request -> {
+            if (request.channel != channel) {
+                return false;
+            }
+            request.fail(cause);
+            return true;
+        });
+    }
+
+    /**
+     * 等待回复的请求数
+     */
+    int size() {
+        return pending.size();
+    }
+
+    /**
+     * 单个请求
+     */
+    static final class PendingRequest {
+        private final int seq;
+        private final Channel channel;
+        private final Scene scene;
+        private final CompletableFuture<Object> future;
+        private volatile Timeout timeout;
+
+        @SuppressWarnings("unchecked")
+        PendingRequest(int seq, Channel channel, Scene scene, CompletableFuture<?> future) {
+            this.seq = seq;
+            this.channel = channel;
+            this.scene = scene;
+            this.future = (CompletableFuture<Object>) future;
+        }
+
+        void complete(Object response) {
+            cancelTimeout();
+            if (scene == null) {
+                future.complete(response);
+            } else {
+                try {
+                    scene.execute(() -> future.complete(response));
+                } catch (RejectedExecutionException e) {
+                    // 场景拒绝（关闭或队列已满），在当前线程完成，避免future一直不完成
+                    future.complete(response);
+                }
+            }
+        }
+
+        void fail(Throwable cause) {
+            cancelTimeout();
+            if (scene == null) {
+                future.completeExceptionally(cause);
+            } else {
+                try {
+                    scene.execute(() -> future.completeExceptionally(cause));
+                } catch (RejectedExecutionException e) {
+                    future.completeExceptionally(cause);
+                }
+            }
+        }
+
+        private void cancelTimeout() {
+            Timeout t = timeout;
+            if (t != null) {
+                t.cancel();
+            }
+        }
+
+        int getSeq() {
+            return seq;
+        }
+    }
+}
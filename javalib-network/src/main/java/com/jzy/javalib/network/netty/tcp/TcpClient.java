@@ -1,25 +1,44 @@
 package com.jzy.javalib.network.netty.tcp;
 
+import com.google.protobuf.Message;
+import com.jzy.javalib.network.io.message.IdMessage;
+import com.jzy.javalib.network.io.message.InnerFrame;
+import com.jzy.javalib.network.io.message.InnerFrameDecoder;
+import com.jzy.javalib.network.io.message.MsgUtil;
+import com.jzy.javalib.network.netty.FlushCoalescingHandler;
+import com.jzy.javalib.network.netty.IoRuntime;
+import com.jzy.javalib.network.netty.NettyChannelOptions;
+import com.jzy.javalib.network.netty.NettyTransport;
 import com.jzy.javalib.network.netty.config.NettyClientConfig;
+import com.jzy.javalib.network.scene.Scene;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
-import io.netty.util.Attribute;
 import io.netty.util.AttributeKey;
-import io.netty.util.concurrent.Future;
-import io.netty.util.concurrent.GenericFutureListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 /**
+ * tcp客户端，到同一后端的连接池
+ * <br>
+ * 保持{@link NettyClientConfig#getConnectCount()} 个连接，每个连接断开后在EventLoop中按指数退避单独重连，不占用线程；
+ * 发送时按id固定连接或选择未发送字节少的连接；{@link #request} 发送请求并异步等待回复
+ *
  * @author jzyong
  * @mail 359135103@qq.com
  */
@@ -29,17 +48,29 @@ public class TcpClient {
     private static final Logger LOGGER = LoggerFactory.getLogger(TcpClient.class);
 
     Bootstrap boot;
-    NioEventLoopGroup workGroup;
+    EventLoopGroup workGroup;
 
     private NettyClientConfig nettyClientConfig;
     public static final AttributeKey<Object> ChannelParamsKey = AttributeKey.valueOf("channelParamsKey");
 
-    protected boolean isRunning = false;
+    protected volatile boolean isRunning = false;
     private String host = "";
     private int port;
     private ChannelInitializer<SocketChannel> channelInitializer;
 
-    private Channel channel;
+    //是否自己创建的io线程，停止时关闭
+    private boolean ownWorkGroup;
+
+    //连接池，断开的连接保留到重连成功，保证按id选择的连接稳定
+    private Channel[] channels = new Channel[0];
+
+    //路由表，连接变化时替换，选择连接不加锁
+    private volatile ChannelRouteTable routeTable = ChannelRouteTable.EMPTY;
+
+    //等待回复的请求
+    private final PendingRequestTable pendingRequests = new PendingRequestTable();
+
+    private final TcpResponseHandler responseHandler = new TcpResponseHandler(pendingRequests);
 
     public TcpClient() {
     }
@@ -48,9 +79,6 @@ public class TcpClient {
     //    @PostConstruct
     public void init() {
         boot = new Bootstrap();
-        workGroup = new NioEventLoopGroup();
-        boot.group(workGroup);
-        boot.channel(NioSocketChannel.class);
         boot.option(ChannelOption.TCP_NODELAY, true);
     }
 
@@ -65,61 +93,260 @@ public class TcpClient {
             throw new IllegalStateException(String.format("channelInitializer 未赋值"));
         }
 
+        if (workGroup == null) {
+            NettyTransport transport;
+            if (nettyClientConfig.isSharedEventLoop()) {
+                IoRuntime ioRuntime = IoRuntime.getInstance();
+                transport = ioRuntime.getTransport();
+                workGroup = ioRuntime.getWorkerGroup();
+            } else {
+                transport = NettyTransport.select(nettyClientConfig.isNativeTransport());
+                workGroup = transport.newEventLoopGroup(nettyClientConfig.getWorkerThreads(),
+                        nettyClientConfig.getName() + "-client");
+                ownWorkGroup = true;
+            }
+            boot.group(workGroup);
+            transport.configure(boot, nettyClientConfig);
+        }
         boot.option(ChannelOption.SO_RCVBUF, nettyClientConfig.getReceiveBufferSize());
         boot.option(ChannelOption.SO_SNDBUF, nettyClientConfig.getSendBufferSize());
-        boot.handler(channelInitializer);
-        connect(nettyClientConfig);
+        boot.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, nettyClientConfig.getConnectTimeOut());
+        NettyChannelOptions.configure(boot, nettyClientConfig);
+        ChannelHandler handler = responseInitializer(channelInitializer);
+        if (nettyClientConfig.isFlushConsolidation()) {
+            handler = FlushCoalescingHandler.initializer(handler, nettyClientConfig.getFlushAfterMessages(),
+                    nettyClientConfig.getFlushDelayMicros());
+        }
+        boot.handler(NettyChannelOptions.initializer(handler, nettyClientConfig));
+
+        host = nettyClientConfig.getIp();
+        port = nettyClientConfig.getPort();
+        boot.remoteAddress(host, port);
+        int connectCount = Math.max(1, nettyClientConfig.getConnectCount());
+        synchronized (this) {
+            channels = new Channel[connectCount];
+            routeTable = ChannelRouteTable.EMPTY;
+        }
+        isRunning = true;
+        for (int i = 0; i < connectCount; i++) {
+            connect(i, 0);
+        }
     }
 
 
     public void stop() {
-        try {
-            LOGGER.info("tcpClient到主机{}端口{}的连接【关闭成功】.", host, port);
-        } catch (Exception ex) {
-            LOGGER.error("", ex);
-        } finally {
-            boot.connect().channel().close();
+        isRunning = false;
+        List<Channel> list;
+        synchronized (this) {
+            list = new ArrayList<>(Arrays.asList(channels));
+            routeTable = ChannelRouteTable.EMPTY;
         }
+        for (Channel c : list) {
+            if (c != null) {
+                c.close();
+            }
+        }
+        if (ownWorkGroup && workGroup != null) {
+            workGroup.shutdownGracefully();
+        }
+        LOGGER.info("tcpClient到主机{}端口{}的连接【关闭成功】.", host, port);
     }
 
+    /**
+     * 建立连接池中第index个连接，异步
+     *
+     * @param index   连接池位置
+     * @param attempt 连续失败次数
+     */
+    private void connect(int index, int attempt) {
+        if (!isRunning) {
+            return;
+        }
+        ChannelFuture channelFuture = boot.connect();
+        channelFuture.addListener(future -> {
+            if (!future.isSuccess()) {
+                LOGGER.warn("失败！连接到服务器：{} 第{}次：{}", nettyClientConfig, attempt + 1, future.cause().getMessage());
+                scheduleReconnect(index, attempt + 1);
+                return;
+            }
+            Channel c = channelFuture.channel();
+            if (!isRunning) {
+                c.close();
+                return;
+            }
+            if (nettyClientConfig.getChannelParam() != null) {
+                c.attr(ChannelParamsKey).set(nettyClientConfig.getChannelParam());
+            }
+            setChannel(index, c);
+            LOGGER.info("成功连接到服务器{}:{} 连接{}", host, port, index);
+            c.closeFuture().addListener(f -> {
+                clearChannel(index, c);
+                pendingRequests.failAll(c, new ClosedChannelException());
+                if (isRunning) {
+                    LOGGER.warn("到服务器{}:{}的连接{}断开，重连", host, port, index);
+                    scheduleReconnect(index, 0);
+                }
+            });
+        });
+    }
 
-    private void connect(NettyClientConfig nettyClientConfig) {
-        new Thread(() -> {
-            for (int i = 0, size = nettyClientConfig.getConnectCount(); i < size; i++) {
-                try {
-                    host = nettyClientConfig.getIp();
-                    port = nettyClientConfig.getPort();
-                    // LOGGER.warn("初始化到服务器的连接：" + value.toString());
-                    boot.remoteAddress(new InetSocketAddress(host, port));
-                    ChannelFuture channelFuture = boot.connect(host, port);
-                    channelFuture.await(10000L, TimeUnit.MILLISECONDS);
-                    channelFuture.addListener(new GenericFutureListener<Future<? super Void>>() {
-                        @Override
-                        public void operationComplete(Future<? super Void> future) throws Exception {
-                            if (future.isSuccess()) {
-                                Channel c = channelFuture.channel();
-                                if (c != null) {
-                                    LOGGER.info("成功连接到服务器{}:{}", host, port);
-                                    TcpClient.this.setChannel(c);
-                                    if (nettyClientConfig.getChannelParam() != null) {
-                                        Attribute<Object> attr = channel.attr(ChannelParamsKey);
-                                        attr.set(nettyClientConfig.getChannelParam());
-                                    }
-                                }
-                            } else {
-                                LOGGER.warn("失败！连接到服务器：" + nettyClientConfig.toString());
-                            }
-                        }
-                    });
-                    channelFuture.channel().closeFuture().sync();
-                } catch (Exception ex) {
-                    LOGGER.error("tcpClient 137错误-------------", ex);
+    /**
+     * 用户pipeline初始化后，在{@link InnerFrameDecoder} 之后添加回复匹配，没有时需自己添加{@link #getResponseHandler()}
+     */
+    private ChannelHandler responseInitializer(ChannelInitializer<SocketChannel> initializer) {
+        return new ChannelInitializer<SocketChannel>() {
+            @Override
+            protected void initChannel(SocketChannel ch) {
+                ChannelPipeline pipeline = ch.pipeline();
+                pipeline.addLast(initializer);
+                ChannelHandlerContext decoder = pipeline.context(InnerFrameDecoder.class);
+                if (decoder != null && pipeline.get(TcpResponseHandler.class) == null) {
+                    pipeline.addAfter(decoder.name(), "tcpResponseHandler", responseHandler);
                 }
             }
-        }).start();
+        };
+    }
 
+    /**
+     * 在EventLoop中延迟重连，延迟按失败次数翻倍并加随机抖动，避免后端重启后同时重连
+     */
+    private void scheduleReconnect(int index, int attempt) {
+        if (!isRunning) {
+            return;
+        }
+        long min = Math.max(1, nettyClientConfig.getReconnectMinDelayMillis());
+        long max = Math.max(min, nettyClientConfig.getReconnectMaxDelayMillis());
+        long delay = Math.min(max, min << Math.min(attempt, 20));
+        delay = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        workGroup.schedule(() -> connect(index, attempt), delay, TimeUnit.MILLISECONDS);
     }
 
+    private synchronized void setChannel(int index, Channel c) {
+        if (index >= channels.length) {
+            c.close();
+            return;
+        }
+        channels[index] = c;
+        // 按连接池位置路由，连接池未满时id映射不变
+        routeTable = ChannelRouteTable.ofSlots(channels);
+    }
+
+    /**
+     * 连接断开后清空位置，重连前不再选择
+     */
+    private synchronized void clearChannel(int index, Channel c) {
+        if (index < channels.length && channels[index] == c) {
+            channels[index] = null;
+            routeTable = ChannelRouteTable.ofSlots(channels);
+        }
+    }
+
+    /**
+     * {@link IdMessage}、{@link InnerFrame} 按id固定连接，其他消息选择负载低的连接
+     *
+     * @param msg
+     * @return
+     */
+    public boolean sendMsg(Object msg) {
+        return routeTable.sendMsg(msg);
+    }
+
+    /**
+     * 发送请求，异步等待回复，在io线程中完成
+     *
+     * @param id      角色|用户id，大于0时按id固定连接
+     * @param request
+     * @return 回复消息；超时、连接断开、发送失败时异常完成
+     */
+    public <T extends Message> CompletableFuture<T> request(long id, Message request) {
+        return request(null, id, request, nettyClientConfig.getRequestTimeoutMillis());
+    }
+
+    /**
+     * 发送请求，异步等待回复，在场景线程中完成，后续操作不需要再切换线程
+     *
+     * @param scene   调用方场景
+     * @param id      角色|用户id，大于0时按id固定连接
+     * @param request
+     * @return 回复消息；超时、连接断开、发送失败时异常完成
+     */
+    public <T extends Message> CompletableFuture<T> request(Scene scene, long id, Message request) {
+        return request(scene, id, request, nettyClientConfig.getRequestTimeoutMillis());
+    }
+
+    /**
+     * 发送请求，异步等待回复；请求分配负数序号，服务器回复时带回相同序号，如{@link com.jzy.javalib.network.io.handler.TcpHandler#sendInnerMsg}
+     *
+     * @param scene         调用方场景，null在io线程中完成
+     * @param id            角色|用户id，大于0时按id固定连接
+     * @param request
+     * @param timeoutMillis 超时毫秒
+     * @return 回复消息；超时、连接断开、发送失败时异常完成
+     */
+    public <T extends Message> CompletableFuture<T> request(Scene scene, long id, Message request,
+                                                            long timeoutMillis) {
+        Channel channel = id > 0 ? routeChannel(id) : nextChannel();
+        if (channel == null || !channel.isActive()) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            future.completeExceptionally(new ClosedChannelException());
+            return future;
+        }
+        int seq = pendingRequests.nextSequence();
+        CompletableFuture<T> future = pendingRequests.add(seq, channel, scene, timeoutMillis);
+        channel.writeAndFlush(IdMessage.newIDMessage(channel, request, id, MsgUtil.getMessageID(request), seq))
+                .addListener(f -> {
+                    if (!f.isSuccess()) {
+                        pendingRequests.fail(seq, f.cause());
+                    }
+                });
+        return future;
+    }
+
+    /**
+     * 等待回复的请求数
+     */
+    public int getPendingRequestCount() {
+        return pendingRequests.size();
+    }
+
+    /**
+     * 回复匹配handler，pipeline中没有{@link InnerFrameDecoder} 时需自己添加在解码之后
+     */
+    public TcpResponseHandler getResponseHandler() {
+        return responseHandler;
+    }
+
+    /**
+     * 选择连接，随机选两个取未发送字节少的，跳过不可写连接
+     *
+     * @return 没有连接返回null
+     */
+    public Channel nextChannel() {
+        return routeTable.next();
+    }
+
+    /**
+     * 按id选择连接，同一id固定到同一连接，连接不可用时选择下一个
+     *
+     * @param id 角色|用户id
+     * @return 没有连接返回null
+     */
+    public Channel routeChannel(long id) {
+        return routeTable.route(id);
+    }
+
+    /**
+     * 已连接的连接数
+     */
+    public synchronized int getActiveCount() {
+        int count = 0;
+        for (Channel c : channels) {
+            if (c != null && c.isActive()) {
+                count++;
+            }
+        }
+        return count;
+    }
 
     public NettyClientConfig getNettyClientConfig() {
         return nettyClientConfig;
@@ -137,11 +364,10 @@ public class TcpClient {
         this.channelInitializer = channelInitializer;
     }
 
+    /**
+     * @return 负载低的连接，见{@link #nextChannel()}
+     */
     public Channel getChannel() {
-        return channel;
-    }
-
-    public void setChannel(Channel channel) {
-        this.channel = channel;
+        return nextChannel();
     }
 }
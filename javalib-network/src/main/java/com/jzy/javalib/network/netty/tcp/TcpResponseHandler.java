@@ -0,0 +1,90 @@
+package com.jzy.javalib.network.netty.tcp;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import com.jzy.javalib.network.io.message.IdMessage;
+import com.jzy.javalib.network.io.message.InnerFrame;
+import com.jzy.javalib.network.io.message.MessageIdRegistry;
+import com.jzy.javalib.network.io.message.MsgUtil;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * 匹配{@link TcpClient#request} 的回复，完成请求的future，其他消息继续向后传递
+ * <br>
+ * 需添加在{@link com.jzy.javalib.network.io.message.InnerFrameDecoder} 之后，TcpClient启动时自动添加；
+ * 支持InnerFrame、IdMessage和去掉长度字段的ByteBuf，消息体按{@link MessageIdRegistry} 注册的解析器解析
+ *
+ * @author jzyong
+ * @mail 359135103@qq.com
+ */
+@ChannelHandler.Sharable
+public class TcpResponseHandler extends ChannelInboundHandlerAdapter {
+
+    private final PendingRequestTable pendingRequests;
+
+    TcpResponseHandler(PendingRequestTable pendingRequests) {
+        this.pendingRequests = pendingRequests;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        PendingRequestTable.PendingRequest request = null;
+        if (msg instanceof InnerFrame) {
+            InnerFrame frame = (InnerFrame) msg;
+            request = pendingRequests.remove(frame.getMsgSequence());
+            if (request != null) {
+                complete(request, frame.getMsgId(), frame.content());
+            }
+        } else if (msg instanceof IdMessage) {
+            IdMessage idMessage = (IdMessage) msg;
+            request = pendingRequests.remove(idMessage.getMsgSequence());
+            if (request != null) {
+                Object body = idMessage.getMsg();
+                if (body instanceof Message) {
+                    request.complete(body);
+                } else if (body instanceof ByteBuf) {
+                    complete(request, idMessage.getMsgId(), (ByteBuf) body);
+                } else {
+                    complete(request, idMessage.getMsgId(), Unpooled.wrappedBuffer((byte[]) body));
+                }
+            }
+        } else if (msg instanceof ByteBuf) {
+            ByteBuf buf = (ByteBuf) msg;
+            if (buf.readableBytes() >= MsgUtil.InnerHeaderLength) {
+                int index = buf.readerIndex();
+                request = pendingRequests.remove(buf.getInt(index + 12));
+                if (request != null) {
+                    complete(request, buf.getInt(index + 8), buf.slice(index + MsgUtil.InnerHeaderLength,
+                            buf.readableBytes() - MsgUtil.InnerHeaderLength));
+                }
+            }
+        }
+        if (request == null) {
+            ctx.fireChannelRead(msg);
+        } else {
+            ReferenceCountUtil.release(msg);
+        }
+    }
+
+    private static void complete(PendingRequestTable.PendingRequest request, int msgId, ByteBuf body) {
+        Parser<? extends Message> parser = MessageIdRegistry.getParser(msgId);
+        if (parser == null) {
+            request.fail(new IllegalStateException("回复消息" + msgId + "未注册解析器，序号：" + request.getSeq()));
+            return;
+        }
+        try {
+            Message response = body.hasArray()
+                    ? parser.parseFrom(body.array(), body.arrayOffset() + body.readerIndex(), body.readableBytes())
+                    : parser.parseFrom(body.nioBuffer());
+            request.complete(response);
+        } catch (InvalidProtocolBufferException e) {
+            request.fail(e);
+        }
+    }
+}
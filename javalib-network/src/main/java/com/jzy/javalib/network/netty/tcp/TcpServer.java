@@ -1,16 +1,20 @@
 package com.jzy.javalib.network.netty.tcp;
 
+import com.jzy.javalib.network.netty.FlushCoalescingHandler;
+import com.jzy.javalib.network.netty.IoRuntime;
+import com.jzy.javalib.network.netty.NettyChannelOptions;
+import com.jzy.javalib.network.netty.NettyTransport;
 import com.jzy.javalib.network.netty.config.NettyServerConfig;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.GenericFutureListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Consumer;
 
 /**
@@ -63,46 +67,70 @@ public class TcpServer {
 		new Thread() {
 			@Override
 			public void run() {
-				EventLoopGroup bossGroup = new NioEventLoopGroup();
-				EventLoopGroup workGroup = new NioEventLoopGroup();
+				boolean shared = nettyServerConfig.isSharedEventLoop();
+				IoRuntime ioRuntime = shared ? IoRuntime.getInstance() : null;
+				NettyTransport transport = shared ? ioRuntime.getTransport()
+						: NettyTransport.select(nettyServerConfig.isNativeTransport());
+				int bindCount = transport.bindCount(nettyServerConfig);
+				String name = nettyServerConfig.getName();
+				EventLoopGroup bossGroup = shared ? ioRuntime.getBossGroup(bindCount, name) : transport.newEventLoopGroup(
+						Math.max(nettyServerConfig.getBossThreads(), bindCount), name + "-boss");
+				EventLoopGroup workGroup = shared ? ioRuntime.getWorkerGroup()
+						: transport.newEventLoopGroup(nettyServerConfig.getWorkerThreads(), name + "-io");
 				try {
 					boot = new ServerBootstrap();
 					boot.group(bossGroup, workGroup);
-					boot.channel(NioServerSocketChannel.class);
-					boot.option(ChannelOption.TCP_NODELAY, nettyServerConfig.isTcpNoDelay());
-					boot.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, nettyServerConfig.getConnectTimeOut());
-					boot.option(ChannelOption.SO_KEEPALIVE, true);
+					transport.configure(boot, nettyServerConfig);
 					boot.option(ChannelOption.SO_REUSEADDR, nettyServerConfig.isReuseAddress());
+					// 监听socket的接收缓冲在accept前设置，才能协商窗口扩大
 					boot.option(ChannelOption.SO_RCVBUF, nettyServerConfig.getReceiveBufferSize());
-					boot.option(ChannelOption.SO_SNDBUF, nettyServerConfig.getSendBufferSize());
-					boot.childHandler(channelInitializer);
+					boot.childOption(ChannelOption.TCP_NODELAY, nettyServerConfig.isTcpNoDelay());
+					boot.childOption(ChannelOption.SO_KEEPALIVE, true);
+					boot.childOption(ChannelOption.SO_RCVBUF, nettyServerConfig.getReceiveBufferSize());
+					boot.childOption(ChannelOption.SO_SNDBUF, nettyServerConfig.getSendBufferSize());
+					NettyChannelOptions.configure(boot, nettyServerConfig);
+					ChannelHandler childHandler = channelInitializer;
+					if (nettyServerConfig.isFlushConsolidation()) {
+						childHandler = FlushCoalescingHandler.initializer(childHandler,
+								nettyServerConfig.getFlushAfterMessages(), nettyServerConfig.getFlushDelayMicros());
+					}
+					boot.childHandler(NettyChannelOptions.initializer(childHandler, nettyServerConfig));
 
 					if (bootstrapConsumer != null) {
 						bootstrapConsumer.accept(boot);
 					}
 
 					int port = nettyServerConfig.getPort();
-					channelFuture = boot.bind(port).sync();
+					// SO_REUSEPORT时多次绑定，每个监听socket一个接收线程
+					List<ChannelFuture> bindFutures = new ArrayList<>(bindCount);
+					for (int i = 0; i < bindCount; i++) {
+						bindFutures.add(boot.bind(port).sync());
+					}
+					channelFuture = bindFutures.get(0);
 					channelFuture.addListener(new GenericFutureListener<Future<? super Void>>() {
 						@Override
 						public void operationComplete(Future<? super Void> future) throws Exception {
 							if (future.isSuccess()) {
-								LOGGER.info("TCP服务 {} 端口：{} 启动完成", nettyServerConfig.getName(),
-										nettyServerConfig.getPort());
+								LOGGER.info("TCP服务 {} 端口：{} 传输：{} 监听数：{} 启动完成", nettyServerConfig.getName(),
+										nettyServerConfig.getPort(), transport, bindCount);
 							} else {
 								LOGGER.info("TCP服务 {} 端口：{} 启动失败", nettyServerConfig.getName(),
 										nettyServerConfig.getPort());
 							}
 						}
 					});
-					Channel channel = channelFuture.channel();
-					channel.closeFuture().sync();
+					for (ChannelFuture bindFuture : bindFutures) {
+						bindFuture.channel().closeFuture().sync();
+					}
 
 				} catch (InterruptedException e) {
 					LOGGER.error("", e);
 				} finally {
-					bossGroup.shutdownGracefully();
-					workGroup.shutdownGracefully();
+					// 共享线程由IoRuntime关闭
+					if (!shared) {
+						bossGroup.shutdownGracefully();
+						workGroup.shutdownGracefully();
+					}
 				}
 			}
 		}.start();
@@ -1,13 +1,18 @@
 package com.jzy.javalib.network.netty.tcp;
 
+import com.google.protobuf.Message;
+import com.jzy.javalib.network.io.message.IdMessage;
+import com.jzy.javalib.network.io.message.InnerFrame;
+import com.jzy.javalib.network.io.message.MsgUtil;
 import com.jzy.javalib.network.netty.INettyService;
 import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * 线程管理，服务器连接会话管理
@@ -19,9 +24,15 @@ import java.util.concurrent.atomic.AtomicInteger;
 public abstract class TcpService implements INettyService<Integer> {
     protected static final Logger LOGGER = LoggerFactory.getLogger(TcpService.class);
 
-    //所有连接
-    protected final List<Channel> allChannels = new ArrayList<Channel>();//
-    private AtomicInteger channelGetCount = new AtomicInteger();
+    /**
+     * 连接所属后端标识，如服务器id，在{@link #onChannelConnect(Channel)} 之前设置，按id路由时同一后端的连接重连后位置不变
+     */
+    public static final AttributeKey<Object> RouteBackendKey = AttributeKey.valueOf("routeBackendKey");
+
+    //所有连接，写时复制
+    protected final List<Channel> allChannels = new CopyOnWriteArrayList<>();
+    //路由表，连接变化时替换，选择连接不加锁
+    private volatile ChannelRouteTable routeTable = ChannelRouteTable.EMPTY;
 
 
     public TcpService() {
@@ -29,11 +40,16 @@ public abstract class TcpService implements INettyService<Integer> {
 
 
     public synchronized void onChannelConnect(Channel channel) {
-        allChannels.add(channel);
+        if (!allChannels.contains(channel)) {
+            allChannels.add(channel);
+            routeTable = ChannelRouteTable.of(allChannels);
+        }
     }
 
     public synchronized void onChannelClosed(Channel channel) {
-        allChannels.remove(channel);
+        if (allChannels.remove(channel)) {
+            routeTable = ChannelRouteTable.of(allChannels);
+        }
     }
 
     public void checkStatus() {
@@ -41,20 +57,24 @@ public abstract class TcpService implements INettyService<Integer> {
 
 
     /**
-     * 广播所有连接的消息
+     * 广播所有服务器内部连接的消息，内部消息头，只编码一次
+     *
+     * @param obj {@link Message}、{@link IdMessage} 或{@link InnerFrame}
+     * @return 发送的连接数
+     */
+    public int broadcastMsgAllChannel(Object obj) {
+        return MsgUtil.broadcastInnerMsg(allChannels, obj);
+    }
+
+    /**
+     * 广播客户端消息给指定连接，如场景视野内玩家，使用客户端消息头，只序列化一次
      *
-     * @param obj
+     * @param channels 客户端连接
+     * @param obj      {@link com.google.protobuf.Message} 或已编码的ByteBuf
+     * @return 发送的连接数
      */
-    public void broadcastMsgAllChannel(Object obj) {
-//        allChannels.forEach(s -> {
-//            if (obj instanceof Message) {
-//                //TODO 修改
-//                MsgUtil.sendInnerMsg(s, (Message) obj, -1, -1);
-//            } else {
-//                throw new UnsupportedOperationException(String.format("消息 %s 类型不支持", obj.getClass().getSimpleName()));
-//            }
-//
-//        });
+    public int broadcastMsg(Collection<? extends Channel> channels, Object obj) {
+        return MsgUtil.broadcastClientMsg(channels, obj);
     }
 
 
@@ -63,40 +83,32 @@ public abstract class TcpService implements INettyService<Integer> {
     }
 
     /**
-     * 服务器内流转的数据都必须带id
+     * 服务器内流转的数据都必须带id，{@link IdMessage}、{@link InnerFrame} 按id固定连接，其他消息选择负载低的连接
      *
      * @param msg
      * @return
      */
     @Override
     public boolean sendMsg(Object msg) {
-//        Channel channel = nextChannel();
-//        if (msg instanceof Message) {
-//            return MsgUtil.sendInnerMsg(channel, (Message) msg, -1, -1);
-//        } else {
-//            return MsgUtil.sendInnerMsg(channel, msg);
-//        }
-        return true;
+        return routeTable.sendMsg(msg);
     }
 
     /**
-     * 依次选择channel
+     * 选择连接，随机选两个取未发送字节少的，跳过不可写连接
      * <br>最好预先分配,内部通信一个channel足以
      */
     public Channel nextChannel() {
-        int count = this.allChannels.size();
-        if (count == 1) {
-            return this.allChannels.get(0);
-        } else if (count < 1) {
-            return null;
-        }
+        return routeTable.next();
+    }
 
-        //2的次方
-        if ((count & -count) == count) {
-            return this.allChannels.get(channelGetCount.getAndDecrement() & count - 1);
-        } else {
-            return this.allChannels.get(Math.abs(channelGetCount.getAndDecrement() % count));
-        }
+    /**
+     * 按id一致性hash选择连接，同一玩家固定到同一连接，连接不可用时选择下一个
+     *
+     * @param id 角色|用户id
+     * @return 没有连接返回null
+     */
+    public Channel routeChannel(long id) {
+        return routeTable.route(id);
     }
 
 
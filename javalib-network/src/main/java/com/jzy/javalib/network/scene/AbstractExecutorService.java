@@ -10,7 +10,7 @@ import java.util.concurrent.*;
 /**
  * 线程池服务
  * <br>
- * 默认注册了io
+ * 默认注册了io，{@link #BLOCKING} 阻塞任务执行器
  *
  * @author JiangZhiYong
  * @mail 359135103@qq.com
@@ -18,14 +18,25 @@ import java.util.concurrent.*;
 public abstract class AbstractExecutorService implements IExecutorService {
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractExecutorService.class);
 
+    /**
+     * 阻塞任务执行器名称，{@code @Handler(executor = "Blocking")}
+     */
+    public static final String BLOCKING = "Blocking";
+
     //执行器 key：名称
     private final Map<String, Executor> executors = new ConcurrentHashMap<>();
     //默认线程组
     private SceneLoopGroup defaultTaskLoopGroup = new SceneTaskLoopGroup();
+    //阻塞任务执行器
+    private final BlockingTaskExecutor blockingExecutor = new BlockingTaskExecutor(BLOCKING);
 
+    public AbstractExecutorService() {
+        executors.put(BLOCKING, blockingExecutor);
+    }
 
     public void destroy() {
         defaultTaskLoopGroup.shutdownGracefully();
+        blockingExecutor.shutdown();
     }
 
     @Override
@@ -49,6 +60,24 @@ public abstract class AbstractExecutorService implements IExecutorService {
         executor.execute(runnable);
     }
 
+    @Override
+    public void execute(String threadName, long key, Runnable runnable) {
+        Executor executor = getExecutor(threadName);
+        if (executor == null) {
+            LOGGER.warn("线程 {} 未注册", threadName);
+            return;
+        }
+        if (executor instanceof KeyedExecutor) {
+            ((KeyedExecutor) executor).execute(key, runnable);
+        } else {
+            executor.execute(runnable);
+        }
+    }
+
+    public BlockingTaskExecutor getBlockingExecutor() {
+        return blockingExecutor;
+    }
+
     /**
      * 注册 scene 线程
      *
@@ -56,11 +85,24 @@ public abstract class AbstractExecutorService implements IExecutorService {
      * @param scene
      */
     public void registerScene(String threadName, Scene scene) {
-        SceneLoop sceneLoop = defaultTaskLoopGroup.next();
+        defaultTaskLoopGroup.register(scene);
+        SceneLoop sceneLoop = scene.eventLoop();
         LOGGER.info("{} {} 注册到{} 线程 ", threadName, scene.getClass().getSimpleName(),
                 ((SingleThreadEventExecutor) sceneLoop).threadProperties().name());
-        scene.register(sceneLoop);
-        executors.put(threadName, scene.eventLoop());
+        // 通过场景提交，场景迁移线程后依然有效
+        executors.put(threadName, runnable -> scene.execute(runnable, true));
+    }
+
+    /**
+     * 注册按key有序执行的线程，如玩家消息，复用默认场景线程组
+     *
+     * @param threadName
+     * @return
+     */
+    public SceneLaneGroup registerLanes(String threadName) {
+        SceneLaneGroup laneGroup = new SceneLaneGroup((MultithreadSceneLoopGroup) defaultTaskLoopGroup);
+        executors.put(threadName, laneGroup);
+        return laneGroup;
     }
 
     /**
@@ -1,22 +1,92 @@
 package com.jzy.javalib.network.scene;
 
 import io.netty.util.concurrent.ScheduledFuture;
+import io.netty.util.internal.SystemPropertyUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 抽象{@link Scene} 封装
+ * <br>
+ * 场景任务先进入场景自己的队列，再批量在{@link SceneLoop} 中执行，支持{@link #migrate(SceneLoop)} 迁移线程且不丢失、不乱序
+ * <br>
+ * 队列超过高水位或所在线程过载时丢弃{@link SceneTaskPriority#LOW} 任务并通知{@link SceneOverloadListener}，
+ * 超过最大长度拒绝{@link SceneTaskPriority#NORMAL} 任务
  * @author JiangZhiYong
  * @date 2019年5月16日 上午10:48:01
  * @mail 359135103@qq.com
  */
 public abstract class AbstractScene implements Scene {
-	
-	private SceneLoop sceneLoop;
-	
+	private static final Logger LOGGER = LoggerFactory.getLogger(AbstractScene.class);
+
+	/**
+	 * 单次最多连续执行的任务数，避免一个场景长期占用线程
+	 */
+	private static final int DRAIN_BATCH_SIZE = 256;
+
+	/**
+	 * 默认队列高低水位
+	 */
+	private static final SceneWaterMark DEFAULT_WATER_MARK = new SceneWaterMark(
+			SystemPropertyUtil.getInt("com.game.scene.lowWaterMark", 4096),
+			SystemPropertyUtil.getInt("com.game.scene.highWaterMark", 8192));
+
+	/**
+	 * 默认最大队列长度
+	 */
+	private static final int DEFAULT_MAX_PENDING_TASKS = Math.max(16,
+			SystemPropertyUtil.getInt("com.game.scene.maxPendingTasks", 65536));
+
+	private volatile SceneLoop sceneLoop;
+
 	private Set<ScheduledFuture<?>> fixedRateScheduledFutures=new HashSet<ScheduledFuture<?>>();
 
+	//所有周期任务，迁移时重新注册
+	private final Set<ScenePeriodicFuture> periodicFutures = ConcurrentHashMap.newKeySet();
+
+	//场景任务队列
+	private final Queue<Runnable> taskQueue = new ConcurrentLinkedQueue<>();
+
+	//任务队列是否已提交到线程执行
+	private final AtomicBoolean draining = new AtomicBoolean();
+
+	private final DrainTask drainTask = new DrainTask();
+
+	//已执行任务数，只在场景线程中修改
+	private volatile long executedTasks;
+
+	//队列中任务数
+	private final AtomicInteger pendingCount = new AtomicInteger();
+
+	private volatile SceneWaterMark waterMark = DEFAULT_WATER_MARK;
+
+	private volatile int maxPendingTasks = DEFAULT_MAX_PENDING_TASKS;
+
+	//场景队列超过高水位
+	private volatile boolean sceneOverloaded;
+
+	//已通知监听的过载状态
+	private boolean overloadNotified;
+
+	private final List<SceneOverloadListener> overloadListeners = new CopyOnWriteArrayList<>();
+
+	//丢弃和拒绝的任务数
+	private final AtomicLong droppedTasks = new AtomicLong();
+
 
 	@Override
 	public SceneLoop eventLoop() {
@@ -38,6 +108,354 @@ public abstract class AbstractScene implements Scene {
 	public Set<ScheduledFuture<?>> getFixedRateScheduledFutures() {
 		return this.fixedRateScheduledFutures;
 	}
-	
+
+	@Override
+	public void execute(Runnable runnable) {
+		if (inEventLoop()) {
+			runnable.run();
+		} else {
+			offer(runnable, SceneTaskPriority.NORMAL);
+		}
+	}
+
+	@Override
+	public void execute(Runnable runnable, boolean addQueue) {
+		if (addQueue || !inEventLoop()) {
+			offer(runnable, SceneTaskPriority.NORMAL);
+		} else {
+			runnable.run();
+		}
+	}
+
+	@Override
+	public void execute(Runnable runnable, SceneTaskPriority priority) {
+		offer(runnable, priority);
+	}
+
+	@Override
+	public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+		return eventLoop().schedule(inScene(command), delay, unit);
+	}
+
+	/**
+	 * 触发时场景已迁移则在新线程执行，返回值为null
+	 */
+	@Override
+	public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+		return eventLoop().schedule(() -> {
+			if (inEventLoop()) {
+				return callable.call();
+			}
+			execute(() -> {
+				try {
+					callable.call();
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			});
+			return null;
+		}, delay, unit);
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+		ScheduledFuture<?> future = schedulePeriodic(command, initialDelay, period, unit, true);
+		getFixedRateScheduledFutures().add(future);
+		return future;
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+		return schedulePeriodic(command, initialDelay, delay, unit, false);
+	}
+
+	private ScheduledFuture<?> schedulePeriodic(Runnable command, long initialDelay, long period, TimeUnit unit,
+			boolean fixedRate) {
+		ScenePeriodicFuture future = new ScenePeriodicFuture(inScene(command), unit.toNanos(period), fixedRate);
+		periodicFutures.add(future);
+		future.addListener(f -> periodicFutures.remove(future));
+		future.schedule(eventLoop(), unit.toNanos(initialDelay));
+		return future;
+	}
+
+	/**
+	 * 定时任务触发时场景可能已迁移，转到场景当前线程执行
+	 */
+	private Runnable inScene(Runnable command) {
+		return () -> {
+			if (inEventLoop()) {
+				command.run();
+			} else {
+				execute(command);
+			}
+		};
+	}
+
+	/**
+	 * 迁移到其他线程，之前提交的任务在原线程执行完后切换，周期任务保持剩余延迟迁移到新线程
+	 */
+	@Override
+	public SceneFuture migrate(SceneLoop target) {
+		ScenePromise promise = new DefaultScenePromise(this, target);
+		if (!isRegistered()) {
+			return promise.setFailure(new IllegalStateException("场景未注册"));
+		}
+		if (sceneLoop == target) {
+			return promise.setSuccess();
+		}
+		offer(new Migration(target, promise), SceneTaskPriority.HIGH);
+		return promise;
+	}
+
+	/**
+	 * 已执行的队列任务数
+	 */
+	public long executedTasks() {
+		return executedTasks;
+	}
+
+	/**
+	 * 场景队列中待执行任务数
+	 */
+	public int pendingTasks() {
+		return pendingCount.get();
+	}
+
+	/**
+	 * 过载丢弃和队列满拒绝的任务数
+	 */
+	public long droppedTasks() {
+		return droppedTasks.get();
+	}
+
+	/**
+	 * 场景队列超过高水位或所在线程过载
+	 */
+	public boolean isOverloaded() {
+		return sceneOverloaded || sceneLoop instanceof SingleThreadTaskLoop
+				&& ((SingleThreadTaskLoop) sceneLoop).isOverloaded();
+	}
+
+	public SceneWaterMark getWaterMark() {
+		return waterMark;
+	}
+
+	public void setWaterMark(SceneWaterMark waterMark) {
+		this.waterMark = waterMark;
+	}
+
+	public int getMaxPendingTasks() {
+		return maxPendingTasks;
+	}
+
+	/**
+	 * 设置最大队列长度，超过后拒绝非{@link SceneTaskPriority#HIGH} 任务
+	 * 
+	 * @param maxPendingTasks
+	 */
+	public void setMaxPendingTasks(int maxPendingTasks) {
+		this.maxPendingTasks = maxPendingTasks;
+	}
+
+	public void addOverloadListener(SceneOverloadListener listener) {
+		overloadListeners.add(listener);
+	}
+
+	public void removeOverloadListener(SceneOverloadListener listener) {
+		overloadListeners.remove(listener);
+	}
+
+	/**
+	 * 过载状态变化时通知监听，加锁保证通知顺序和最终状态一致
+	 */
+	void updateOverload() {
+		synchronized (overloadListeners) {
+			boolean overloaded = isOverloaded();
+			if (overloaded == overloadNotified) {
+				return;
+			}
+			overloadNotified = overloaded;
+			for (SceneOverloadListener listener : overloadListeners) {
+				try {
+					if (overloaded) {
+						listener.onOverload(this);
+					} else {
+						listener.onRecover(this);
+					}
+				} catch (Throwable t) {
+					LOGGER.error("场景 {}-{} 过载通知", getClass().getSimpleName(), id(), t);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 任务出队后检测是否降到低水位
+	 */
+	private void checkRecover(int pending) {
+		if (sceneOverloaded && pending <= waterMark.low()) {
+			sceneOverloaded = false;
+			updateOverload();
+		}
+	}
+
+	/**
+	 * 放入场景队列
+	 * 
+	 * @return false 过载丢弃
+	 */
+	private boolean offer(Runnable runnable, SceneTaskPriority priority) {
+		if (priority != SceneTaskPriority.HIGH) {
+			if (priority == SceneTaskPriority.LOW && isOverloaded()) {
+				droppedTasks.incrementAndGet();
+				return false;
+			}
+			if (pendingCount.get() >= maxPendingTasks) {
+				droppedTasks.incrementAndGet();
+				throw new RejectedExecutionException(
+						String.format("场景 %s-%d 队列已满：%d", getClass().getSimpleName(), id(), maxPendingTasks));
+			}
+		}
+		taskQueue.offer(runnable);
+		if (pendingCount.incrementAndGet() >= waterMark.high() && !sceneOverloaded) {
+			sceneOverloaded = true;
+			updateOverload();
+		}
+		if (draining.compareAndSet(false, true)) {
+			try {
+				drainTask.submit(sceneLoop);
+			} catch (RejectedExecutionException e) {
+				draining.set(false);
+				// 调用方收到拒绝，任务不能留在队列中
+				if (taskQueue.remove(runnable)) {
+					checkRecover(pendingCount.decrementAndGet());
+				}
+				droppedTasks.incrementAndGet();
+				throw e;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 在原线程中执行迁移
+	 *
+	 * @return true 已切换线程，原线程停止执行队列
+	 */
+	private boolean doMigrate(Migration migration) {
+		SceneLoop source = sceneLoop;
+		SceneLoop target = migration.target;
+		if (source == target) {
+			migration.promise.trySuccess();
+			return false;
+		}
+		if (target.isShuttingDown()) {
+			migration.promise.tryFailure(new RejectedExecutionException("目标线程已关闭"));
+			return false;
+		}
+		periodicFutures.forEach(future -> future.rehome(target));
+		if (source instanceof SingleThreadTaskLoop) {
+			((SingleThreadTaskLoop) source).detach(this);
+		}
+		if (target instanceof SingleThreadTaskLoop) {
+			((SingleThreadTaskLoop) target).attach(this);
+		}
+		// 最后切换，之后提交的任务进入新线程
+		sceneLoop = target;
+		drainTask.resubmit(target);
+		migration.promise.trySuccess();
+		// 目标线程过载状态可能不同
+		updateOverload();
+		return true;
+	}
+
+	/**
+	 * 迁移标记，在场景队列中保证顺序
+	 */
+	private static final class Migration implements Runnable {
+		private final SceneLoop target;
+		private final ScenePromise promise;
+
+		Migration(SceneLoop target, ScenePromise promise) {
+			this.target = target;
+			this.promise = promise;
+		}
+
+		@Override
+		public void run() {
+		}
+	}
+
+	/**
+	 * 批量执行场景队列任务，{@link SceneTaskLoop} 中逐个统计任务执行时间
+	 */
+	final class DrainTask implements SingleThreadTaskLoop.BatchRunnable {
+
+		//提交到线程队列的时间
+		private long submitNanos;
+
+		void submit(SceneLoop loop) {
+			submitNanos = System.nanoTime();
+			loop.execute(this);
+		}
+
+		/**
+		 * 场景线程内继续排队，线程拒绝时重置draining，后续offer可以重新提交
+		 */
+		private void resubmit(SceneLoop loop) {
+			try {
+				submit(loop);
+			} catch (RejectedExecutionException e) {
+				draining.set(false);
+				LOGGER.warn("场景 {}-{} 提交线程被拒绝，剩余任务 {}", AbstractScene.this.getClass().getSimpleName(), id(),
+						taskQueue.size(), e);
+			}
+		}
+
+		@Override
+		public void run() {
+			SceneLoop loop = sceneLoop;
+			SceneLoopMetrics metrics = loop instanceof SceneTaskLoop ? ((SceneTaskLoop) loop).getMetrics() : null;
+			long startTime = System.nanoTime();
+			if (metrics != null) {
+				metrics.recordQueueWait(startTime - submitNanos);
+			}
+			int count = 0;
+			Runnable task;
+			try {
+				while ((task = taskQueue.poll()) != null) {
+					checkRecover(pendingCount.decrementAndGet());
+					if (task instanceof Migration) {
+						if (doMigrate((Migration) task)) {
+							return;
+						}
+						continue;
+					}
+					SceneTaskLoop.safeExecute(task);
+					if (metrics != null) {
+						long now = System.nanoTime();
+						metrics.recordTask(AbstractScene.this, task, now - startTime);
+						startTime = now;
+					}
+					if (++count >= DRAIN_BATCH_SIZE) {
+						// 让出线程，继续排队
+						resubmit(sceneLoop);
+						return;
+					}
+				}
+			} finally {
+				executedTasks += count;
+			}
+			draining.set(false);
+			if (!taskQueue.isEmpty() && draining.compareAndSet(false, true)) {
+				resubmit(sceneLoop);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return AbstractScene.this.getClass().getSimpleName() + "-" + id();
+		}
+	}
 
 }
@@ -0,0 +1,197 @@
+package com.jzy.javalib.network.scene;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.SystemPropertyUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 阻塞任务执行器，如数据库查询、http请求
+ * <br>
+ * 运行环境支持虚拟线程时每个任务一个虚拟线程，否则使用可伸缩线程池；
+ * {@link #execute(long, Runnable)} 相同key的任务按提交顺序执行，如同一玩家的请求
+ *
+ * @author JiangZhiYong
+ * @mail 359135103@qq.com
+ */
+public final class BlockingTaskExecutor implements KeyedExecutor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BlockingTaskExecutor.class);
+
+    /**
+     * 是否使用虚拟线程
+     */
+    private static final boolean VIRTUAL_THREAD_ENABLED = SystemPropertyUtil
+            .getBoolean("com.game.blockingExecutor.virtualThread", true);
+
+    /**
+     * 不支持虚拟线程时最大线程数
+     */
+    private static final int MAX_THREADS = Math.max(1,
+            SystemPropertyUtil.getInt("com.game.blockingExecutor.maxThreads", 256));
+
+    /**
+     * 有序队列单次连续执行任务数，避免一个key长期占用线程
+     */
+    private static final int LANE_BATCH_SIZE = 64;
+
+    private final ExecutorService executor;
+
+    private final boolean virtual;
+
+    /**
+     * 有序队列 key：如玩家id
+     */
+    private final Map<Long, Lane> lanes = new ConcurrentHashMap<>();
+
+    public BlockingTaskExecutor(String name) {
+        ExecutorService virtualExecutor = VIRTUAL_THREAD_ENABLED ? newVirtualThreadExecutor() : null;
+        if (virtualExecutor != null) {
+            this.executor = virtualExecutor;
+            this.virtual = true;
+        } else {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), new DefaultThreadFactory(name));
+            pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
+            this.virtual = false;
+        }
+        LOGGER.info("阻塞执行器 {} 使用{}", name, virtual ? "虚拟线程" : "线程池：" + MAX_THREADS);
+    }
+
+    /**
+     * 编译版本不支持虚拟线程，运行时通过反射创建
+     *
+     * @return 不支持返回null
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method method = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (Exception e) {
+            LOGGER.warn("创建虚拟线程执行器失败", e);
+            return null;
+        }
+    }
+
+    /**
+     * 是否使用虚拟线程
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        executor.execute(ObjectUtil.checkNotNull(task, "task"));
+    }
+
+    @Override
+    public void execute(long key, Runnable task) {
+        ObjectUtil.checkNotNull(task, "task");
+        Lane[] start = new Lane[1];
+        lanes.compute(key, (k, lane) -> {
+            if (lane == null) {
+                lane = new Lane(k);
+            }
+            lane.tasks.offer(task);
+            if (!lane.running) {
+                lane.running = true;
+                start[0] = lane;
+            }
+            return lane;
+        });
+        if (start[0] != null) {
+            try {
+                executor.execute(start[0]);
+            } catch (RejectedExecutionException e) {
+                // 执行器关闭或已满，撤销本任务，其他任务等下次提交时再执行
+                lanes.computeIfPresent(key, (k, lane) -> {
+                    lane.tasks.remove(task);
+                    lane.running = false;
+                    return lane.tasks.isEmpty() ? null : lane;
+                });
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 有序队列数
+     */
+    public int laneCount() {
+        return lanes.size();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * 同一key的任务队列，只在{@link #lanes} 的compute中访问，空闲时移除
+     */
+    private final class Lane implements Runnable {
+        private final long key;
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private boolean running;
+
+        Lane(long key) {
+            this.key = key;
+        }
+
+        private Runnable poll() {
+            Runnable[] next = new Runnable[1];
+            lanes.computeIfPresent(key, (k, lane) -> {
+                next[0] = lane.tasks.poll();
+                if (next[0] == null) {
+                    lane.running = false;
+                    return null;
+                }
+                return lane;
+            });
+            return next[0];
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < LANE_BATCH_SIZE; i++) {
+                Runnable task = poll();
+                if (task == null) {
+                    return;
+                }
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    LOGGER.error("有序任务 key={} 执行异常", key, t);
+                }
+            }
+            // 让出线程，继续排队
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                lanes.computeIfPresent(key, (k, lane) -> {
+                    lane.running = false;
+                    return lane.tasks.isEmpty() ? null : lane;
+                });
+                LOGGER.error("有序任务 key={} 重新排队失败，剩余任务等下次提交时执行", key, e);
+            }
+        }
+    }
+}
@@ -36,6 +36,18 @@ public interface IExecutorService {
      */
     void execute(String threadName, Runnable runnable);
 
+    /**
+     * 按key有序执行任务，执行器不支持有序时直接执行
+     *
+     * @param threadName
+     * @param key        如玩家id
+     * @param runnable
+     * @see KeyedExecutor
+     */
+    default void execute(String threadName, long key, Runnable runnable) {
+        execute(threadName, runnable);
+    }
+
     /**
      * 注册线程使用场景
      *
@@ -0,0 +1,20 @@
+package com.jzy.javalib.network.scene;
+
+import java.util.concurrent.Executor;
+
+/**
+ * 按key有序执行任务的执行器，相同key按提交顺序执行，不同key可并发
+ *
+ * @author JiangZhiYong
+ * @mail 359135103@qq.com
+ */
+public interface KeyedExecutor extends Executor {
+
+    /**
+     * 按key有序执行
+     *
+     * @param key  如玩家id
+     * @param task
+     */
+    void execute(long key, Runnable task);
+}
@@ -3,12 +3,16 @@ package com.jzy.javalib.network.scene;
 import io.netty.channel.MultithreadEventLoopGroup;
 import io.netty.util.NettyRuntime;
 import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.EventExecutorChooserFactory;
 import io.netty.util.concurrent.MultithreadEventExecutorGroup;
 import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
 
@@ -39,11 +43,22 @@ public abstract class MultithreadSceneLoopGroup extends MultithreadEventExecutor
         }
     }
 
+    /**
+     * 所有子线程
+     */
+    private final SceneLoop[] sceneLoops;
+
+    /**
+     * 场景注册线程选择策略
+     */
+    private volatile ScenePlacementStrategy placementStrategy = ScenePlacementStrategies.roundRobin();
+
     /**
      * @see MultithreadEventExecutorGroup#MultithreadEventExecutorGroup(int, Executor, Object...)
      */
     protected MultithreadSceneLoopGroup(int nThreads, Executor executor, Object... args) {
         super(nThreads == 0 ? DEFAULT_SCENE_LOOP_THREADS : nThreads, executor, args);
+        sceneLoops = initSceneLoops();
     }
 
     /**
@@ -51,6 +66,7 @@ public abstract class MultithreadSceneLoopGroup extends MultithreadEventExecutor
      */
     protected MultithreadSceneLoopGroup(int nThreads, ThreadFactory threadFactory, Object... args) {
         super(nThreads == 0 ? DEFAULT_SCENE_LOOP_THREADS : nThreads, threadFactory, args);
+        sceneLoops = initSceneLoops();
     }
 
     /**
@@ -60,6 +76,16 @@ public abstract class MultithreadSceneLoopGroup extends MultithreadEventExecutor
     protected MultithreadSceneLoopGroup(int nThreads, Executor executor, EventExecutorChooserFactory chooserFactory,
                                         Object... args) {
         super(nThreads == 0 ? DEFAULT_SCENE_LOOP_THREADS : nThreads, executor, chooserFactory, args);
+        sceneLoops = initSceneLoops();
+    }
+
+    private SceneLoop[] initSceneLoops() {
+        SceneLoop[] loops = new SceneLoop[executorCount()];
+        Iterator<EventExecutor> iterator = iterator();
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = (SceneLoop) iterator.next();
+        }
+        return loops;
     }
 
     @Override
@@ -75,15 +101,57 @@ public abstract class MultithreadSceneLoopGroup extends MultithreadEventExecutor
     @Override
     protected abstract SceneLoop newChild(Executor executor, Object... args) throws Exception;
 
+    /**
+     * 按{@link ScenePlacementStrategy} 选择线程注册
+     */
     @Override
     public SceneFuture register(Scene scene) {
-        //TODO 自定义实现选择 线程 ，游戏野外地图消息量比较大，独占线程 ？？？
-        return next().register(scene);
+        return choose(scene).register(scene);
     }
 
     @Override
     public SceneFuture register(ScenePromise promise) {
-        return next().register(promise);
+        return choose(promise.scene()).register(promise);
+    }
+
+    /**
+     * 为场景选择执行线程
+     *
+     * @param scene
+     * @return
+     */
+    protected SceneLoop choose(Scene scene) {
+        SceneLoop sceneLoop = placementStrategy.choose(scene, sceneLoops);
+        return sceneLoop == null ? next() : sceneLoop;
+    }
+
+    @Override
+    public List<SceneLoopMetrics> loopMetrics() {
+        List<SceneLoopMetrics> metrics = new ArrayList<>(sceneLoops.length);
+        for (SceneLoop sceneLoop : sceneLoops) {
+            metrics.addAll(sceneLoop.loopMetrics());
+        }
+        return metrics;
+    }
+
+    /**
+     * 所有子线程
+     */
+    protected SceneLoop[] sceneLoops() {
+        return sceneLoops;
+    }
+
+    public ScenePlacementStrategy getPlacementStrategy() {
+        return placementStrategy;
+    }
+
+    /**
+     * 设置场景注册线程选择策略，只影响之后注册的场景
+     *
+     * @param placementStrategy
+     */
+    public void setPlacementStrategy(ScenePlacementStrategy placementStrategy) {
+        this.placementStrategy = placementStrategy == null ? ScenePlacementStrategies.roundRobin() : placementStrategy;
     }
 
 }
@@ -26,6 +26,16 @@ public interface Scene {
 		return 0;
 	}
 
+	/**
+	 * 场景权重，如预期每秒消息量，用于选择执行线程
+	 * 
+	 * @see ScenePlacementStrategy
+	 * @return
+	 */
+	default int weight() {
+		return 1;
+	}
+
 	/**
 	 * Return the {@link SceneLoop} this {@link Scene} was registered to.
 	 */
@@ -82,7 +92,30 @@ public interface Scene {
 	}
 
 	/**
-	 * @note 测试性能不佳，任务过多cpu消耗高
+	 * 按优先级放入队列执行，过载时低优先级任务可能被丢弃
+	 * 
+	 * @param runnable
+	 * @param priority
+	 * @see SceneTaskPriority
+	 */
+	default void execute(Runnable runnable, SceneTaskPriority priority) {
+		execute(runnable, true);
+	}
+
+	/**
+	 * 迁移到其他{@link SceneLoop}，迁移前提交的任务执行完后再切换线程
+	 * 
+	 * @param sceneLoop 目标线程
+	 * @return 切换完成后通知
+	 */
+	default SceneFuture migrate(SceneLoop sceneLoop) {
+		return new DefaultScenePromise(this, eventLoop())
+				.setFailure(new UnsupportedOperationException(getClass().getSimpleName() + " 不支持迁移"));
+	}
+
+	/**
+	 * {@link SceneTaskLoop} 使用时间轮执行，添加、取消都是O(1)
+	 * 
 	 * @param command
 	 * @param delay
 	 * @param unit
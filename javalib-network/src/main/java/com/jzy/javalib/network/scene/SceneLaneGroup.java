@@ -0,0 +1,240 @@
+package com.jzy.javalib.network.scene;
+
+import io.netty.util.internal.ObjectUtil;
+
+import java.util.Deque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按key有序执行的轻量队列，如每个玩家一个队列，复用{@link MultithreadSceneLoopGroup} 的线程
+ * <br>
+ * 相同key的任务按提交顺序串行执行，不同key在多个线程并行；每个线程有一个就绪队列，
+ * key按hash分配到线程，线程空闲时从其他线程就绪队列尾部窃取。队列空闲时自动移除，不需要注册和销毁
+ *
+ * @author JiangZhiYong
+ * @mail 359135103@qq.com
+ */
+public class SceneLaneGroup implements KeyedExecutor {
+
+    /**
+     * 单个队列连续执行任务数
+     */
+    private static final int LANE_BATCH_SIZE = 64;
+
+    /**
+     * 每次在线程中连续执行的时间，超过后让出线程
+     */
+    private static final long WORKER_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Worker[] workers;
+
+    /**
+     * 有任务的队列 key：如玩家id
+     */
+    private final Map<Long, Lane> lanes = new ConcurrentHashMap<>();
+
+    private final AtomicInteger stealIndex = new AtomicInteger();
+
+    //无序任务轮询线程
+    private final AtomicInteger executeIndex = new AtomicInteger();
+
+    /**
+     * 窃取次数
+     */
+    private final AtomicLong steals = new AtomicLong();
+
+    public SceneLaneGroup(MultithreadSceneLoopGroup group) {
+        SceneLoop[] loops = group.sceneLoops();
+        workers = new Worker[loops.length];
+        for (int i = 0; i < loops.length; i++) {
+            workers[i] = new Worker(loops[i]);
+        }
+    }
+
+    /**
+     * 无序任务，轮流提交到线程，不经过key队列，不和有序任务排在一起
+     */
+    @Override
+    public void execute(Runnable task) {
+        ObjectUtil.checkNotNull(task, "task");
+        workers[Math.floorMod(executeIndex.getAndIncrement(), workers.length)].loop.execute(task);
+    }
+
+    @Override
+    public void execute(long key, Runnable task) {
+        ObjectUtil.checkNotNull(task, "task");
+        Lane[] ready = new Lane[1];
+        lanes.compute(key, (k, lane) -> {
+            if (lane == null) {
+                lane = new Lane(k);
+            }
+            lane.tasks.offer(task);
+            if (!lane.scheduled) {
+                lane.scheduled = true;
+                ready[0] = lane;
+            }
+            return lane;
+        });
+        if (ready[0] != null) {
+            homeWorker(key).push(ready[0]);
+        }
+    }
+
+    private Worker homeWorker(long key) {
+        long hash = ScenePlacementStrategies.mix64(key);
+        return workers[(int) ((hash >>> 1) % workers.length)];
+    }
+
+    /**
+     * 当前有任务的队列数
+     */
+    public int laneCount() {
+        return lanes.size();
+    }
+
+    /**
+     * 累计窃取次数
+     */
+    public long steals() {
+        return steals.get();
+    }
+
+    /**
+     * 执行完一批任务后判断队列是否为空，空则移除
+     *
+     * @return true 还有任务
+     */
+    private boolean reschedule(Lane lane) {
+        boolean[] pending = new boolean[1];
+        lanes.computeIfPresent(lane.key, (k, l) -> {
+            if (l.tasks.isEmpty()) {
+                l.scheduled = false;
+                return null;
+            }
+            pending[0] = true;
+            return l;
+        });
+        return pending[0];
+    }
+
+    /**
+     * 唤醒一个空闲线程窃取任务
+     */
+    private void signalIdle(Worker busy) {
+        int start = stealIndex.getAndIncrement();
+        for (int i = 0; i < workers.length; i++) {
+            Worker worker = workers[Math.floorMod(start + i, workers.length)];
+            if (worker != busy && !worker.scheduled.get()) {
+                worker.schedule();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 同一key的任务队列，{@link #scheduled} 只在{@link #lanes} 的compute中修改
+     */
+    private static final class Lane {
+        private final long key;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        //是否在某个线程就绪队列中或正在执行
+        private boolean scheduled;
+
+        Lane(long key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * 每个线程的就绪队列，所属线程从头部取，其他线程从尾部窃取
+     */
+    private final class Worker implements SingleThreadTaskLoop.BatchRunnable {
+        private final SceneLoop loop;
+        private final Deque<Lane> ready = new ConcurrentLinkedDeque<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        Worker(SceneLoop loop) {
+            this.loop = loop;
+        }
+
+        void push(Lane lane) {
+            ready.offerLast(lane);
+            if (!scheduled.get()) {
+                schedule();
+            } else if (workers.length > 1) {
+                // 当前线程忙，让空闲线程来窃取
+                signalIdle(this);
+            }
+        }
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                loop.execute(this);
+            }
+        }
+
+        private Lane steal() {
+            int start = stealIndex.getAndIncrement();
+            for (int i = 0; i < workers.length; i++) {
+                Worker victim = workers[Math.floorMod(start + i, workers.length)];
+                if (victim == this) {
+                    continue;
+                }
+                Lane lane = victim.ready.pollLast();
+                if (lane != null) {
+                    steals.incrementAndGet();
+                    return lane;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void run() {
+            SceneLoopMetrics metrics = loop instanceof SceneTaskLoop ? ((SceneTaskLoop) loop).getMetrics() : null;
+            long startTime = System.nanoTime();
+            long deadline = startTime + WORKER_BUDGET_NANOS;
+            for (;;) {
+                Lane lane = ready.pollFirst();
+                if (lane == null) {
+                    lane = steal();
+                }
+                if (lane == null) {
+                    break;
+                }
+                for (int i = 0; i < LANE_BATCH_SIZE; i++) {
+                    Runnable task = lane.tasks.poll();
+                    if (task == null) {
+                        break;
+                    }
+                    SceneTaskLoop.safeExecute(task);
+                    if (metrics != null) {
+                        long now = System.nanoTime();
+                        metrics.recordTask(null, task, now - startTime);
+                        startTime = now;
+                    }
+                }
+                if (reschedule(lane)) {
+                    ready.offerLast(lane);
+                }
+                if (System.nanoTime() >= deadline) {
+                    // 让出线程，继续排队
+                    loop.execute(this);
+                    return;
+                }
+            }
+            scheduled.set(false);
+            if (!ready.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.jzy.javalib.network.scene;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 耗时直方图，对数分桶，每个2的幂区间再分8个子桶，相对误差小于12.5%
+ * <br>
+ * 只能在一个线程中记录，其他线程可以随时读取
+ *
+ * @author JiangZhiYong
+ * @mail 359135103@qq.com
+ */
+public final class SceneLatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /**
+     * 最大记录值，约18分钟，超过的记为最大值
+     */
+    private static final long MAX_VALUE = (1L << 40) - 1;
+    private static final int BUCKETS = index(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private volatile long count;
+    private volatile long totalNanos;
+    private volatile long maxNanos;
+
+    /**
+     * 记录一次耗时
+     *
+     * @param nanos
+     */
+    void record(long nanos) {
+        long value = Math.min(MAX_VALUE, Math.max(0, nanos));
+        int index = index(value);
+        // 单线程写，lazySet即可
+        counts.lazySet(index, counts.get(index) + 1);
+        count++;
+        totalNanos += value;
+        if (value > maxNanos) {
+            maxNanos = value;
+        }
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        return ((exponent - SUB_BUCKET_BITS) << SUB_BUCKET_BITS) + (int) (value >>> (exponent - SUB_BUCKET_BITS));
+    }
+
+    /**
+     * 桶内最大值
+     */
+    private static long highestValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long sub = (index & (SUB_BUCKETS - 1)) + SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public long getMeanNanos() {
+        long count = this.count;
+        return count == 0 ? 0 : totalNanos / count;
+    }
+
+    /**
+     * 百分位耗时
+     *
+     * @param percentile 0-100，如99.9
+     * @return 纳秒，返回所在桶的最大值
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * total));
+        long sum = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            sum += snapshot[i];
+            if (sum >= target) {
+                return Math.min(highestValue(i), maxNanos);
+            }
+        }
+        return maxNanos;
+    }
+
+    /**
+     * 清空，只能在记录线程中调用
+     */
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.lazySet(i, 0);
+        }
+        count = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%dus p50=%dus p99=%dus p999=%dus max=%dus", count, getMeanNanos() / 1000,
+                getValueAtPercentile(50) / 1000, getValueAtPercentile(99) / 1000, getValueAtPercentile(99.9) / 1000,
+                maxNanos / 1000);
+    }
+}
@@ -3,6 +3,9 @@ package com.jzy.javalib.network.scene;
 import io.netty.channel.EventLoopGroup;
 import io.netty.util.concurrent.EventExecutorGroup;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  *  特殊的{@link EventExecutorGroup} ,允许注册{@link Scene}
  * <br>
@@ -28,4 +31,13 @@ public interface SceneLoopGroup extends EventExecutorGroup{
      * {@link SceneFuture} will get notified once the registration was complete and also will get returned.
      */
     SceneFuture register(ScenePromise promise);
+
+    /**
+     * 各线程任务统计
+     *
+     * @return 不支持统计的线程返回空列表
+     */
+    default List<SceneLoopMetrics> loopMetrics() {
+        return Collections.emptyList();
+    }
 }
@@ -0,0 +1,282 @@
+package com.jzy.javalib.network.scene;
+
+import io.netty.util.internal.SystemPropertyUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SceneTaskLoop} 任务统计
+ * <br>
+ * 排队时间、执行时间直方图，按任务类型统计执行时间，记录最近的慢任务；只在线程中记录，可在任意线程查询
+ *
+ * @author JiangZhiYong
+ * @mail 359135103@qq.com
+ */
+public final class SceneLoopMetrics {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SceneLoopMetrics.class);
+
+    /**
+     * 默认慢任务阈值
+     */
+    private static final long DEFAULT_SLOW_TASK_NANOS = TimeUnit.MILLISECONDS
+            .toNanos(Math.max(1, SystemPropertyUtil.getInt("com.game.sceneTaskLoop.slowTaskMillis", 50)));
+
+    /**
+     * 保留最近慢任务数
+     */
+    private static final int MAX_SLOW_TASKS = 64;
+
+    private final SingleThreadTaskLoop loop;
+
+    /**
+     * 场景任务在线程队列中的排队时间
+     */
+    private final SceneLatencyHistogram queueWait = new SceneLatencyHistogram();
+
+    /**
+     * 任务执行时间
+     */
+    private final SceneLatencyHistogram executeTime = new SceneLatencyHistogram();
+
+    private final Map<Class<?>, TaskMetrics> taskMetrics = new ConcurrentHashMap<>();
+
+    private final Deque<SlowTask> slowTasks = new ArrayDeque<>(MAX_SLOW_TASKS);
+
+    private volatile long slowTaskNanos = DEFAULT_SLOW_TASK_NANOS;
+
+    private volatile long completedTasks;
+
+    private volatile long resetNanos = System.nanoTime();
+
+    //上次任务类型缓存，同类型任务连续执行时不查map
+    private Class<?> lastType;
+    private TaskMetrics lastTaskMetrics;
+
+    SceneLoopMetrics(SingleThreadTaskLoop loop) {
+        this.loop = loop;
+    }
+
+    void recordQueueWait(long nanos) {
+        queueWait.record(nanos);
+    }
+
+    /**
+     * 记录任务执行时间，超过阈值记为慢任务
+     *
+     * @param scene 任务所属场景，可为null
+     * @param task
+     * @param nanos
+     */
+    void recordTask(Scene scene, Runnable task, long nanos) {
+        completedTasks++;
+        executeTime.record(nanos);
+        Class<?> type = task.getClass();
+        TaskMetrics metrics = lastTaskMetrics;
+        if (type != lastType) {
+            metrics = taskMetrics.computeIfAbsent(type, TaskMetrics::new);
+            lastType = type;
+            lastTaskMetrics = metrics;
+        }
+        metrics.executeTime.record(nanos);
+        if (nanos >= slowTaskNanos) {
+            slowTask(scene, task, nanos);
+        }
+    }
+
+    private void slowTask(Scene scene, Runnable task, long nanos) {
+        SlowTask slowTask = new SlowTask(scene, task, nanos, loop.pendingTasks());
+        synchronized (slowTasks) {
+            if (slowTasks.size() >= MAX_SLOW_TASKS) {
+                slowTasks.pollFirst();
+            }
+            slowTasks.addLast(slowTask);
+        }
+        LOGGER.warn("任务[{}-{}]执行：{}ms 剩余任务：{}", task.getClass().getSimpleName(), slowTask.description,
+                TimeUnit.NANOSECONDS.toMillis(nanos), slowTask.pendingTasks);
+    }
+
+    public SceneLatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+
+    public SceneLatencyHistogram getExecuteTime() {
+        return executeTime;
+    }
+
+    /**
+     * 已执行任务数
+     */
+    public long getCompletedTasks() {
+        return completedTasks;
+    }
+
+    /**
+     * 统计开始后每秒执行任务数
+     */
+    public double getThroughput() {
+        long elapsed = System.nanoTime() - resetNanos;
+        return elapsed <= 0 ? 0 : completedTasks * 1_000_000_000D / elapsed;
+    }
+
+    /**
+     * 队列长度，线程队列和线程中所有场景队列
+     */
+    public int getPendingTasks() {
+        return loop.totalPendingTasks();
+    }
+
+    /**
+     * 各类型任务统计，按累计耗时降序
+     */
+    public List<TaskMetrics> getTaskMetrics() {
+        List<TaskMetrics> list = new ArrayList<>(taskMetrics.values());
+        list.sort(Comparator.comparingLong((TaskMetrics m) -> m.executeTime.getTotalNanos()).reversed());
+        return list;
+    }
+
+    /**
+     * @param type 任务类型
+     * @return 未执行过返回null
+     */
+    public TaskMetrics getTaskMetrics(Class<?> type) {
+        return taskMetrics.get(type);
+    }
+
+    /**
+     * 最近的慢任务，从旧到新
+     */
+    public List<SlowTask> getSlowTasks() {
+        synchronized (slowTasks) {
+            return new ArrayList<>(slowTasks);
+        }
+    }
+
+    public long getSlowTaskNanos() {
+        return slowTaskNanos;
+    }
+
+    /**
+     * 设置慢任务阈值
+     *
+     * @param slowTaskNanos
+     */
+    public void setSlowTaskNanos(long slowTaskNanos) {
+        this.slowTaskNanos = Math.max(1, slowTaskNanos);
+    }
+
+    /**
+     * 清空统计，在线程中执行
+     */
+    public void reset() {
+        if (!loop.inEventLoop()) {
+            loop.execute(this::reset);
+            return;
+        }
+        queueWait.reset();
+        executeTime.reset();
+        taskMetrics.clear();
+        lastType = null;
+        lastTaskMetrics = null;
+        synchronized (slowTasks) {
+            slowTasks.clear();
+        }
+        completedTasks = 0;
+        resetNanos = System.nanoTime();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("completed=%d throughput=%.1f/s pending=%d queueWait[%s] execute[%s]", completedTasks,
+                getThroughput(), getPendingTasks(), queueWait, executeTime);
+    }
+
+    /**
+     * 单个任务类型统计
+     */
+    public static final class TaskMetrics {
+        private final Class<?> type;
+        private final SceneLatencyHistogram executeTime = new SceneLatencyHistogram();
+
+        TaskMetrics(Class<?> type) {
+            this.type = type;
+        }
+
+        public Class<?> getType() {
+            return type;
+        }
+
+        public SceneLatencyHistogram getExecuteTime() {
+            return executeTime;
+        }
+
+        @Override
+        public String toString() {
+            return type.getName() + " " + executeTime;
+        }
+    }
+
+    /**
+     * 慢任务记录
+     */
+    public static final class SlowTask {
+        private final String type;
+        private final String description;
+        private final String scene;
+        private final long executeNanos;
+        private final int pendingTasks;
+        private final long time = System.currentTimeMillis();
+
+        SlowTask(Scene scene, Runnable task, long executeNanos, int pendingTasks) {
+            this.type = task.getClass().getName();
+            this.description = task.toString();
+            this.scene = scene == null ? null : scene.getClass().getSimpleName() + "-" + scene.id();
+            this.executeNanos = executeNanos;
+            this.pendingTasks = pendingTasks;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * @return 非场景任务为null
+         */
+        public String getScene() {
+            return scene;
+        }
+
+        public long getExecuteNanos() {
+            return executeNanos;
+        }
+
+        public int getPendingTasks() {
+            return pendingTasks;
+        }
+
+        /**
+         * 记录时间，毫秒
+         */
+        public long getTime() {
+            return time;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s scene=%s execute=%dms pending=%d", type, scene,
+                    TimeUnit.NANOSECONDS.toMillis(executeNanos), pendingTasks);
+        }
+    }
+}
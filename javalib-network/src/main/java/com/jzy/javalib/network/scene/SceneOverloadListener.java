@@ -0,0 +1,24 @@
+package com.jzy.javalib.network.scene;
+
+/**
+ * 场景过载监听，场景或所在线程队列超过高水位时通知，可用于暂停读取网络消息
+ *
+ * @author JiangZhiYong
+ * @mail 359135103@qq.com
+ */
+public interface SceneOverloadListener {
+
+    /**
+     * 进入过载，可能在提交任务的线程中调用
+     *
+     * @param scene
+     */
+    void onOverload(Scene scene);
+
+    /**
+     * 恢复正常，在场景线程中调用
+     *
+     * @param scene
+     */
+    void onRecover(Scene scene);
+}
@@ -0,0 +1,99 @@
+package com.jzy.javalib.network.scene;
+
+import io.netty.util.concurrent.DefaultPromise;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AbstractScene} 周期任务句柄
+ * <br>
+ * 场景迁移时底层定时任务会重新注册到新线程，句柄保持不变，调用方持有的句柄依然可以取消任务
+ *
+ * @author JiangZhiYong
+ * @mail 359135103@qq.com
+ */
+final class ScenePeriodicFuture extends DefaultPromise<Void> implements ScheduledFuture<Void> {
+
+    private final Runnable command;
+    private final long periodNanos;
+    // true scheduleAtFixedRate，false scheduleWithFixedDelay
+    private final boolean fixedRate;
+    // 当前线程上的定时任务
+    private volatile ScheduledFuture<?> delegate;
+
+    ScenePeriodicFuture(Runnable command, long periodNanos, boolean fixedRate) {
+        super(ImmediateEventExecutor.INSTANCE);
+        this.command = command;
+        this.periodNanos = periodNanos;
+        this.fixedRate = fixedRate;
+    }
+
+    /**
+     * 注册到执行线程
+     *
+     * @param sceneLoop
+     * @param initialDelayNanos
+     */
+    void schedule(SceneLoop sceneLoop, long initialDelayNanos) {
+        ScheduledFuture<?> future;
+        if (fixedRate) {
+            future = sceneLoop.scheduleAtFixedRate(command, initialDelayNanos, periodNanos, TimeUnit.NANOSECONDS);
+        } else {
+            future = sceneLoop.scheduleWithFixedDelay(command, initialDelayNanos, periodNanos, TimeUnit.NANOSECONDS);
+        }
+        delegate = future;
+        future.addListener(f -> {
+            // 任务抛出异常，netty会终止周期任务
+            if (!f.isSuccess() && !f.isCancelled()) {
+                tryFailure(f.cause());
+            }
+        });
+        if (isCancelled()) {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * 迁移到新线程，保持剩余延迟时间，必须在原线程中调用
+     *
+     * @param sceneLoop
+     */
+    void rehome(SceneLoop sceneLoop) {
+        ScheduledFuture<?> old = delegate;
+        if (isDone() || old == null) {
+            return;
+        }
+        long delay = Math.max(0, old.getDelay(TimeUnit.NANOSECONDS));
+        old.cancel(false);
+        schedule(sceneLoop, delay);
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (super.cancel(mayInterruptIfRunning)) {
+            ScheduledFuture<?> future = delegate;
+            if (future != null) {
+                future.cancel(mayInterruptIfRunning);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        ScheduledFuture<?> future = delegate;
+        return future == null ? unit.convert(periodNanos, TimeUnit.NANOSECONDS) : future.getDelay(unit);
+    }
+
+    @Override
+    public int compareTo(Delayed o) {
+        if (this == o) {
+            return 0;
+        }
+        return Long.compare(getDelay(TimeUnit.NANOSECONDS), o.getDelay(TimeUnit.NANOSECONDS));
+    }
+}
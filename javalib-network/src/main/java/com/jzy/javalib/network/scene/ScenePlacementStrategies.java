@@ -0,0 +1,217 @@
+package com.jzy.javalib.network.scene;
+
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 内置的{@link ScenePlacementStrategy}
+ * <br>
+ * 野外地图等消息量大的场景可通过{@link Scene#weight()} 声明权重，使用{@link #dedicated(int, ScenePlacementStrategy)} 独占线程；
+ * 独占场景迁出或{@link SingleThreadTaskLoop#deregister(Scene)} 后释放线程
+ *
+ * @author JiangZhiYong
+ * @mail 359135103@qq.com
+ */
+public final class ScenePlacementStrategies {
+
+    /**
+     * 一致性hash每个线程的虚拟节点数
+     */
+    private static final int VIRTUAL_NODES = 160;
+
+    private ScenePlacementStrategies() {
+    }
+
+    /**
+     * 轮询选择，默认策略
+     */
+    public static ScenePlacementStrategy roundRobin() {
+        return new RoundRobinStrategy();
+    }
+
+    /**
+     * 选择负载最低的线程，负载=已注册场景权重和+待执行任务数
+     */
+    public static ScenePlacementStrategy leastLoaded() {
+        return LeastLoadedStrategy.INSTANCE;
+    }
+
+    /**
+     * 按{@link Scene#id()} 一致性hash选择，相同id始终落在同一线程
+     */
+    public static ScenePlacementStrategy consistentHash() {
+        return new ConsistentHashStrategy();
+    }
+
+    /**
+     * 权重达到阈值的场景独占没有场景的线程，其他场景使用fallback在非独占线程中选择
+     *
+     * @param weightThreshold 独占线程的权重阈值
+     * @param fallback        普通场景选择策略
+     * @return
+     */
+    public static ScenePlacementStrategy dedicated(int weightThreshold, ScenePlacementStrategy fallback) {
+        return new DedicatedStrategy(weightThreshold, fallback);
+    }
+
+    /**
+     * 线程当前负载
+     *
+     * @param loop
+     * @return
+     */
+    static long load(SceneLoop loop) {
+        if (loop instanceof SingleThreadTaskLoop) {
+            SingleThreadTaskLoop taskLoop = (SingleThreadTaskLoop) loop;
+            return (long) taskLoop.sceneWeight() + taskLoop.pendingTasks();
+        } else if (loop instanceof SingleThreadEventExecutor) {
+            return ((SingleThreadEventExecutor) loop).pendingTasks();
+        }
+        return 0;
+    }
+
+    /**
+     * 64位混淆，打散连续id
+     */
+    static long mix64(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    private static final class RoundRobinStrategy implements ScenePlacementStrategy {
+        private final AtomicInteger idx = new AtomicInteger();
+
+        @Override
+        public SceneLoop choose(Scene scene, SceneLoop[] loops) {
+            return loops[Math.abs(idx.getAndIncrement() % loops.length)];
+        }
+    }
+
+    private static final class LeastLoadedStrategy implements ScenePlacementStrategy {
+        private static final LeastLoadedStrategy INSTANCE = new LeastLoadedStrategy();
+
+        @Override
+        public SceneLoop choose(Scene scene, SceneLoop[] loops) {
+            SceneLoop selected = loops[0];
+            long minLoad = load(selected);
+            for (int i = 1; i < loops.length; i++) {
+                long load = load(loops[i]);
+                if (load < minLoad) {
+                    minLoad = load;
+                    selected = loops[i];
+                }
+            }
+            return selected;
+        }
+    }
+
+    private static final class ConsistentHashStrategy implements ScenePlacementStrategy {
+        private volatile SceneLoop[] ringLoops;
+        private volatile TreeMap<Long, SceneLoop> ring;
+
+        @Override
+        public SceneLoop choose(Scene scene, SceneLoop[] loops) {
+            TreeMap<Long, SceneLoop> ring = ring(loops);
+            Map.Entry<Long, SceneLoop> entry = ring.ceilingEntry(mix64(scene.id()));
+            if (entry == null) {
+                entry = ring.firstEntry();
+            }
+            return entry.getValue();
+        }
+
+        private TreeMap<Long, SceneLoop> ring(SceneLoop[] loops) {
+            TreeMap<Long, SceneLoop> ring = this.ring;
+            if (ring != null && Arrays.equals(ringLoops, loops)) {
+                return ring;
+            }
+            synchronized (this) {
+                if (this.ring != null && Arrays.equals(ringLoops, loops)) {
+                    return this.ring;
+                }
+                ring = new TreeMap<>();
+                for (int i = 0; i < loops.length; i++) {
+                    for (int j = 0; j < VIRTUAL_NODES; j++) {
+                        ring.put(mix64(((long) i << 32) | j), loops[i]);
+                    }
+                }
+                this.ringLoops = loops;
+                this.ring = ring;
+                return ring;
+            }
+        }
+    }
+
+    private static final class DedicatedStrategy implements ScenePlacementStrategy {
+        private final int weightThreshold;
+        private final ScenePlacementStrategy fallback;
+        //已被独占的线程 value：独占的场景
+        private final Map<SceneLoop, Scene> dedicatedLoops = new ConcurrentHashMap<>();
+
+        DedicatedStrategy(int weightThreshold, ScenePlacementStrategy fallback) {
+            this.weightThreshold = weightThreshold;
+            this.fallback = fallback == null ? LeastLoadedStrategy.INSTANCE : fallback;
+        }
+
+        @Override
+        public synchronized SceneLoop choose(Scene scene, SceneLoop[] loops) {
+            if (scene.weight() >= weightThreshold) {
+                SceneLoop selected = null;
+                long minLoad = Long.MAX_VALUE;
+                for (SceneLoop loop : loops) {
+                    // 只选择没有场景的线程，保证独占
+                    if (dedicatedLoops.containsKey(loop) || !isEmpty(loop)) {
+                        continue;
+                    }
+                    long load = load(loop);
+                    if (load < minLoad) {
+                        minLoad = load;
+                        selected = loop;
+                    }
+                }
+                //没有空闲线程，退化为在非独占线程中选择负载最低的
+                if (selected == null) {
+                    SceneLoop[] candidates = sharedLoops(loops);
+                    return LeastLoadedStrategy.INSTANCE.choose(scene, candidates.length == 0 ? loops : candidates);
+                }
+                dedicatedLoops.put(selected, scene);
+                return selected;
+            }
+            if (dedicatedLoops.isEmpty()) {
+                return fallback.choose(scene, loops);
+            }
+            SceneLoop[] candidates = sharedLoops(loops);
+            return fallback.choose(scene, candidates.length == 0 ? loops : candidates);
+        }
+
+        @Override
+        public void release(Scene scene, SceneLoop loop) {
+            dedicatedLoops.remove(loop, scene);
+        }
+
+        @Override
+        public boolean isExclusive(SceneLoop loop) {
+            return dedicatedLoops.containsKey(loop);
+        }
+
+        private SceneLoop[] sharedLoops(SceneLoop[] loops) {
+            SceneLoop[] sharedLoops = new SceneLoop[loops.length];
+            int count = 0;
+            for (SceneLoop loop : loops) {
+                if (!dedicatedLoops.containsKey(loop)) {
+                    sharedLoops[count++] = loop;
+                }
+            }
+            return count == loops.length ? loops : Arrays.copyOf(sharedLoops, count);
+        }
+
+        private static boolean isEmpty(SceneLoop loop) {
+            return !(loop instanceof SingleThreadTaskLoop) || ((SingleThreadTaskLoop) loop).sceneWeight() == 0;
+        }
+    }
+}
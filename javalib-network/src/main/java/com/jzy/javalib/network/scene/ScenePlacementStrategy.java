@@ -0,0 +1,42 @@
+package com.jzy.javalib.network.scene;
+
+import io.netty.util.concurrent.EventExecutorChooserFactory;
+
+/**
+ * {@link Scene} 注册时选择执行线程{@link SceneLoop}的策略
+ *
+ * @author JiangZhiYong
+ * @mail 359135103@qq.com
+ * @see ScenePlacementStrategies
+ * @see EventExecutorChooserFactory.EventExecutorChooser
+ */
+public interface ScenePlacementStrategy {
+
+    /**
+     * 为场景选择执行线程
+     *
+     * @param scene 待注册场景
+     * @param loops 线程组中所有线程，不能修改
+     * @return
+     */
+    SceneLoop choose(Scene scene, SceneLoop[] loops);
+
+    /**
+     * 场景迁出线程或注销时调用，释放选择时记录的状态，可能在其他线程调用
+     *
+     * @param scene
+     * @param loop  场景原来所在线程
+     */
+    default void release(Scene scene, SceneLoop loop) {
+    }
+
+    /**
+     * 线程是否被场景独占，独占线程不接收迁入的场景
+     *
+     * @param loop
+     * @return
+     */
+    default boolean isExclusive(SceneLoop loop) {
+        return false;
+    }
+}
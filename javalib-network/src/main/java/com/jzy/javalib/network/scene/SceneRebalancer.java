@@ -0,0 +1,214 @@
+package com.jzy.javalib.network.scene;
+
+import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 场景线程负载均衡
+ * <br>
+ * 定时检测{@link SceneTaskLoop} 队列长度和繁忙时间，连续多次过高时将一个{@link AbstractScene} 迁移到空闲线程
+ *
+ * @author JiangZhiYong
+ * @mail 359135103@qq.com
+ */
+public class SceneRebalancer implements Runnable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SceneRebalancer.class);
+
+    private final MultithreadSceneLoopGroup group;
+
+    /**
+     * 队列长度阈值
+     */
+    private int queueDepthThreshold = 10000;
+
+    /**
+     * 繁忙比例阈值，执行任务耗时/检测间隔
+     */
+    private double busyRatioThreshold = 0.8;
+
+    /**
+     * 空闲比例，低于该值的线程才能接收迁移场景
+     */
+    private double idleRatioThreshold = 0.5;
+
+    /**
+     * 连续过高次数才迁移
+     */
+    private int hotRounds = 3;
+
+    private long lastCheckNanos;
+    private long[] lastBusyNanos;
+    private int[] hotCounts;
+    //场景上次检测时已执行任务数
+    private Map<Scene, Long> lastExecutedTasks = new HashMap<>();
+
+    private volatile ScheduledFuture<?> future;
+
+    public SceneRebalancer(MultithreadSceneLoopGroup group) {
+        this.group = group;
+    }
+
+    /**
+     * 开始定时检测
+     *
+     * @param period
+     * @param unit
+     */
+    public synchronized void start(long period, TimeUnit unit) {
+        if (future != null) {
+            return;
+        }
+        future = GlobalEventExecutor.INSTANCE.scheduleAtFixedRate(this, period, period, unit);
+        group.terminationFuture().addListener(f -> stop());
+    }
+
+    public synchronized void stop() {
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            rebalance();
+        } catch (Throwable t) {
+            LOGGER.error("场景负载均衡", t);
+        }
+    }
+
+    private void rebalance() {
+        SceneLoop[] loops = group.sceneLoops();
+        long now = System.nanoTime();
+        if (lastBusyNanos == null) {
+            lastBusyNanos = new long[loops.length];
+            hotCounts = new int[loops.length];
+            for (int i = 0; i < loops.length; i++) {
+                lastBusyNanos[i] = busyNanos(loops[i]);
+            }
+            lastCheckNanos = now;
+            return;
+        }
+        long elapsed = Math.max(1, now - lastCheckNanos);
+        lastCheckNanos = now;
+
+        double[] busyRatios = new double[loops.length];
+        long[] loads = new long[loops.length];
+        Map<Scene, Long> sceneLoads = new HashMap<>();
+        Map<Scene, Long> executedTasks = new HashMap<>();
+        for (int i = 0; i < loops.length; i++) {
+            long busy = busyNanos(loops[i]);
+            busyRatios[i] = (double) (busy - lastBusyNanos[i]) / elapsed;
+            lastBusyNanos[i] = busy;
+            if (!(loops[i] instanceof SingleThreadTaskLoop)) {
+                continue;
+            }
+            SingleThreadTaskLoop loop = (SingleThreadTaskLoop) loops[i];
+            long depth = loop.pendingTasks();
+            for (Scene scene : loop.scenes()) {
+                if (!(scene instanceof AbstractScene)) {
+                    continue;
+                }
+                depth += ((AbstractScene) scene).pendingTasks();
+                long executed = ((AbstractScene) scene).executedTasks();
+                long load = executed - lastExecutedTasks.getOrDefault(scene, executed);
+                executedTasks.put(scene, executed);
+                sceneLoads.put(scene, load);
+                loads[i] += load;
+            }
+            boolean hot = depth >= queueDepthThreshold || busyRatios[i] >= busyRatioThreshold;
+            hotCounts[i] = hot ? hotCounts[i] + 1 : 0;
+        }
+        lastExecutedTasks = executedTasks;
+
+        int hotIndex = -1;
+        int coldIndex = -1;
+        ScenePlacementStrategy strategy = group.getPlacementStrategy();
+        for (int i = 0; i < loops.length; i++) {
+            if (hotCounts[i] >= hotRounds && (hotIndex < 0 || busyRatios[i] > busyRatios[hotIndex])) {
+                hotIndex = i;
+            }
+            // 独占线程不接收迁入
+            if (hotCounts[i] == 0 && busyRatios[i] < idleRatioThreshold && !strategy.isExclusive(loops[i])
+                    && (coldIndex < 0 || busyRatios[i] < busyRatios[coldIndex])) {
+                coldIndex = i;
+            }
+        }
+        if (hotIndex < 0 || coldIndex < 0) {
+            return;
+        }
+
+        // 选择负载最接近两线程负载差一半的场景，迁移后两边更平均
+        long diff = loads[hotIndex] - loads[coldIndex];
+        Scene selected = null;
+        long selectedDistance = Long.MAX_VALUE;
+        for (Scene scene : ((SingleThreadTaskLoop) loops[hotIndex]).scenes()) {
+            Long load = sceneLoads.get(scene);
+            if (load == null || load >= diff) {
+                continue;
+            }
+            long distance = Math.abs(diff / 2 - load);
+            if (distance < selectedDistance) {
+                selectedDistance = distance;
+                selected = scene;
+            }
+        }
+        if (selected == null) {
+            return;
+        }
+        hotCounts[hotIndex] = 0;
+        SceneLoop target = loops[coldIndex];
+        Scene scene = selected;
+        scene.migrate(target).addListener(f -> {
+            if (f.isSuccess()) {
+                LOGGER.info("场景 {}-{} 迁移到线程 {}", scene.getClass().getSimpleName(), scene.id(),
+                        ((SingleThreadTaskLoop) target).threadProperties().name());
+            } else {
+                LOGGER.warn("场景 {}-{} 迁移失败", scene.getClass().getSimpleName(), scene.id(), f.cause());
+            }
+        });
+    }
+
+    private static long busyNanos(SceneLoop loop) {
+        return loop instanceof SceneTaskLoop ? ((SceneTaskLoop) loop).busyNanos() : 0;
+    }
+
+    public int getQueueDepthThreshold() {
+        return queueDepthThreshold;
+    }
+
+    public void setQueueDepthThreshold(int queueDepthThreshold) {
+        this.queueDepthThreshold = queueDepthThreshold;
+    }
+
+    public double getBusyRatioThreshold() {
+        return busyRatioThreshold;
+    }
+
+    public void setBusyRatioThreshold(double busyRatioThreshold) {
+        this.busyRatioThreshold = busyRatioThreshold;
+    }
+
+    public double getIdleRatioThreshold() {
+        return idleRatioThreshold;
+    }
+
+    public void setIdleRatioThreshold(double idleRatioThreshold) {
+        this.idleRatioThreshold = idleRatioThreshold;
+    }
+
+    public int getHotRounds() {
+        return hotRounds;
+    }
+
+    public void setHotRounds(int hotRounds) {
+        this.hotRounds = hotRounds;
+    }
+}
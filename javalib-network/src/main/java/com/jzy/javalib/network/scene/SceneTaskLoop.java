@@ -3,16 +3,32 @@ package com.jzy.javalib.network.scene;
 import io.netty.channel.nio.NioEventLoop;
 import io.netty.util.concurrent.AbstractEventExecutor;
 import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.ScheduledFuture;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * 执行场景对象中的任务，在一个线程中顺序执行
+ * <br>
+ * 定时任务默认使用{@link SceneTimingWheel}，-Dcom.game.sceneTaskLoop.timingWheel=false 使用netty默认的优先级队列
+ * <br>
+ * 任务队列默认使用无锁MPSC队列，批量执行，没有任务时先自旋再park
  * 
  * @see NioEventLoop
  * @author JiangZhiYong
@@ -23,6 +39,85 @@ public final class SceneTaskLoop extends SingleThreadTaskLoop {
 	private static final InternalLogger logger = InternalLoggerFactory.getInstance(AbstractEventExecutor.class);
 	private static final Logger LOGGER = LoggerFactory.getLogger(SceneTaskLoop.class);
 
+	/**
+	 * 定时任务是否使用时间轮
+	 */
+	private static final boolean TIMING_WHEEL_ENABLED = SystemPropertyUtil
+			.getBoolean("com.game.sceneTaskLoop.timingWheel", true);
+
+	/**
+	 * 时间轮精度
+	 */
+	private static final long TIMER_TICK_NANOS = TimeUnit.MILLISECONDS
+			.toNanos(Math.max(1, SystemPropertyUtil.getInt("com.game.sceneTaskLoop.timerTickMillis", 1)));
+
+	/**
+	 * 任务队列是否使用无锁MPSC队列，false使用LinkedBlockingQueue
+	 */
+	private static final boolean MPSC_QUEUE_ENABLED = SystemPropertyUtil
+			.getBoolean("com.game.sceneTaskLoop.mpscQueue", true);
+
+	/**
+	 * 每批最多执行任务数
+	 */
+	private static final int MAX_BATCH_TASKS = Math.max(1,
+			SystemPropertyUtil.getInt("com.game.sceneTaskLoop.maxBatchTasks", 1024));
+
+	/**
+	 * 空闲时最多自旋次数，0 直接park
+	 */
+	private static final int MAX_SPINS = Math.max(0, SystemPropertyUtil.getInt("com.game.sceneTaskLoop.maxSpins", 1024));
+
+	/**
+	 * 非场景任务每隔多少个采样一次执行时间，0 不采样；场景任务在{@link AbstractScene} 中逐个统计
+	 */
+	private static final int TASK_SAMPLE_INTERVAL = Math.max(0,
+			SystemPropertyUtil.getInt("com.game.sceneTaskLoop.taskSampleInterval", 1));
+
+	/**
+	 * 执行任务累计耗时，只在当前线程修改
+	 */
+	private volatile long busyNanos;
+
+	private final SceneTimingWheel timingWheel = new SceneTimingWheel(TIMER_TICK_NANOS);
+
+	private final SceneLoopMetrics metrics = new SceneLoopMetrics(this);
+
+	/**
+	 * 执行线程
+	 */
+	private volatile Thread loopThread;
+
+	/**
+	 * 线程是否即将park
+	 */
+	private volatile boolean waiting;
+
+	/**
+	 * 当前自旋次数，有任务在自旋期间到达时增加，否则减少
+	 */
+	private int spins = MAX_SPINS;
+
+	/**
+	 * 采样计数
+	 */
+	private int sampleCounter;
+
+	/**
+	 * 下次过载检测时间
+	 */
+	private long nextOverloadCheckNanos;
+
+	/**
+	 * 帧驱动场景，只在当前线程修改
+	 */
+	private final List<SceneTicker> tickers = new CopyOnWriteArrayList<>();
+
+	/**
+	 * 最近一帧的时间
+	 */
+	private long nextTickNanos = Long.MAX_VALUE;
+
 	public SceneTaskLoop() {
 		this((SceneLoopGroup) null);
 	}
@@ -40,25 +135,36 @@ public final class SceneTaskLoop extends SingleThreadTaskLoop {
 	}
 
 	public SceneTaskLoop(SceneLoopGroup parent, ThreadFactory threadFactory) {
-		super(parent, threadFactory, true);
+		super(parent, threadFactory, false);
 	}
 
 	public SceneTaskLoop(SceneLoopGroup parent, Executor executor) {
-		super(parent, executor, true);
+		super(parent, executor, false);
+	}
+
+	@Override
+	protected Queue<Runnable> newTaskQueue(int maxPendingTasks) {
+		if (MPSC_QUEUE_ENABLED) {
+			return maxPendingTasks == Integer.MAX_VALUE ? PlatformDependent.newMpscQueue()
+					: PlatformDependent.newMpscQueue(maxPendingTasks);
+		}
+		return super.newTaskQueue(maxPendingTasks);
 	}
 
 	@Override
 	protected void run() {
+		loopThread = Thread.currentThread();
 		for (;;) {
-			Runnable task = takeTask();
-			if (task != null) {
-				long startTime = System.currentTimeMillis();
-				safeExecute(task);
-				if (System.currentTimeMillis() - startTime > 50) {
-					LOGGER.warn("任务[{}-{}]执行：{}ms 剩余任务：{}", task.getClass().getSimpleName(), task.toString(),
-							(System.currentTimeMillis() - startTime), this.pendingTasks());
-				}
-				updateLastExecutionTime();
+			int executed = runTaskBatch();
+			expireTimeouts();
+			runTicks();
+			long now = System.nanoTime();
+			if (now >= nextOverloadCheckNanos) {
+				nextOverloadCheckNanos = now + TIMER_TICK_NANOS;
+				checkOverload();
+			}
+			if (executed == 0) {
+				waitForTasks();
 			}
 
 			if (confirmShutdown()) {
@@ -67,13 +173,363 @@ public final class SceneTaskLoop extends SingleThreadTaskLoop {
 		}
 	}
 
+	/**
+	 * 批量执行队列任务和到期的netty定时任务，超过一个时间轮精度或最大批量后返回，保证定时任务和帧及时执行
+	 * 
+	 * @return 执行的任务数
+	 */
+	private int runTaskBatch() {
+		long startTime = System.nanoTime();
+		long deadline = startTime + TIMER_TICK_NANOS;
+		int count = 0;
+		Runnable task;
+		while ((task = pollScheduledTask(nanoTime())) != null || (task = pollTask()) != null) {
+			// 场景批量任务耗时较长，每次都检测时间
+			boolean checkDeadline = (count & 0x3F) == 0x3F;
+			if (task instanceof BatchRunnable) {
+				checkDeadline = true;
+				safeExecute(task);
+			} else if (TASK_SAMPLE_INTERVAL > 0 && ++sampleCounter >= TASK_SAMPLE_INTERVAL) {
+				sampleCounter = 0;
+				long taskStartTime = System.nanoTime();
+				safeExecute(task);
+				metrics.recordTask(null, task, System.nanoTime() - taskStartTime);
+			} else {
+				safeExecute(task);
+			}
+			if (++count >= MAX_BATCH_TASKS || (checkDeadline && System.nanoTime() >= deadline)) {
+				break;
+			}
+		}
+		if (count == 0) {
+			return 0;
+		}
+		afterRunningAllTasks();
+		long costNanos = System.nanoTime() - startTime;
+		busyNanos += costNanos;
+		if (count > 1 && costNanos > metrics.getSlowTaskNanos()) {
+			LOGGER.warn("批量执行{}个任务：{}ms 剩余任务：{}", count, TimeUnit.NANOSECONDS.toMillis(costNanos),
+					this.pendingTasks());
+		}
+		updateLastExecutionTime();
+		return count;
+	}
+
+	/**
+	 * 没有任务时先自适应自旋，再park到下一个定时任务或帧
+	 */
+	private void waitForTasks() {
+		for (int i = 0; i < spins; i++) {
+			if (hasTasks() || isShuttingDown()) {
+				spins = Math.min(MAX_SPINS, spins + Math.max(16, spins >> 2));
+				return;
+			}
+			Thread.onSpinWait();
+		}
+		spins = Math.max(0, spins - Math.max(1, spins >> 3));
+
+		waiting = true;
+		try {
+			if (hasTasks() || isShuttingDown()) {
+				return;
+			}
+			long parkNanos = parkNanos();
+			if (parkNanos < 0) {
+				LockSupport.park(this);
+			} else if (parkNanos > 0) {
+				LockSupport.parkNanos(this, parkNanos);
+			}
+		} finally {
+			waiting = false;
+		}
+	}
+
+	/**
+	 * 最长park时间
+	 * 
+	 * @return -1 一直等待到有任务
+	 */
+	private long parkNanos() {
+		long parkNanos = nextScheduledTaskNano();
+		if (!timingWheel.isEmpty()) {
+			parkNanos = parkNanos < 0 ? TIMER_TICK_NANOS : Math.min(parkNanos, TIMER_TICK_NANOS);
+		}
+		if (isOverloaded()) {
+			// 过载时定时检测恢复
+			parkNanos = parkNanos < 0 ? TIMER_TICK_NANOS : Math.min(parkNanos, TIMER_TICK_NANOS);
+		}
+		if (!tickers.isEmpty()) {
+			long tickNanos = Math.max(0, nextTickNanos - System.nanoTime());
+			parkNanos = parkNanos < 0 ? tickNanos : Math.min(parkNanos, tickNanos);
+		}
+		return parkNanos;
+	}
+
+	@Override
+	protected void wakeup(boolean inEventLoop) {
+		if (!inEventLoop && waiting) {
+			Thread thread = loopThread;
+			if (thread != null) {
+				LockSupport.unpark(thread);
+			}
+		}
+	}
+
+	@Override
+	public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+		if (!TIMING_WHEEL_ENABLED) {
+			return super.schedule(command, delay, unit);
+		}
+		ObjectUtil.checkNotNull(command, "command");
+		return addTimeout(new SceneTimeout<>(this, Executors.callable(command), deadlineNanos(delay, unit), 0));
+	}
+
+	@Override
+	public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+		if (!TIMING_WHEEL_ENABLED) {
+			return super.schedule(callable, delay, unit);
+		}
+		ObjectUtil.checkNotNull(callable, "callable");
+		return addTimeout(new SceneTimeout<>(this, callable, deadlineNanos(delay, unit), 0));
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+		if (!TIMING_WHEEL_ENABLED) {
+			return super.scheduleAtFixedRate(command, initialDelay, period, unit);
+		}
+		ObjectUtil.checkNotNull(command, "command");
+		ObjectUtil.checkPositiveOrZero(initialDelay, "initialDelay");
+		ObjectUtil.checkPositive(period, "period");
+		return addTimeout(new SceneTimeout<>(this, Executors.callable(command), deadlineNanos(initialDelay, unit),
+				unit.toNanos(period)));
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+		if (!TIMING_WHEEL_ENABLED) {
+			return super.scheduleWithFixedDelay(command, initialDelay, delay, unit);
+		}
+		ObjectUtil.checkNotNull(command, "command");
+		ObjectUtil.checkPositiveOrZero(initialDelay, "initialDelay");
+		ObjectUtil.checkPositive(delay, "delay");
+		return addTimeout(new SceneTimeout<>(this, Executors.callable(command), deadlineNanos(initialDelay, unit),
+				-unit.toNanos(delay)));
+	}
+
+	private static long deadlineNanos(long delay, TimeUnit unit) {
+		ObjectUtil.checkNotNull(unit, "unit");
+		return System.nanoTime() + unit.toNanos(Math.max(0, delay));
+	}
+
+	private <V> SceneTimeout<V> addTimeout(SceneTimeout<V> timeout) {
+		if (inEventLoop()) {
+			timingWheel.add(timeout);
+		} else {
+			execute(() -> {
+				if (!timeout.isCancelled()) {
+					timingWheel.add(timeout);
+				}
+			});
+		}
+		return timeout;
+	}
+
+	/**
+	 * 取消的定时任务从时间轮中移除
+	 * 
+	 * @param timeout
+	 */
+	void removeTimeout(SceneTimeout<?> timeout) {
+		if (inEventLoop()) {
+			timingWheel.remove(timeout);
+		} else if (!isShutdown()) {
+			execute(() -> timingWheel.remove(timeout));
+		}
+	}
+
+	SceneTimingWheel timingWheel() {
+		return timingWheel;
+	}
+
+	/**
+	 * 执行时间轮到期任务
+	 */
+	private void expireTimeouts() {
+		if (timingWheel.isEmpty()) {
+			return;
+		}
+		long startTime = System.nanoTime();
+		timingWheel.expire(startTime);
+		busyNanos += System.nanoTime() - startTime;
+	}
+
+	/**
+	 * 执行到期的帧
+	 */
+	private void runTicks() {
+		if (tickers.isEmpty()) {
+			return;
+		}
+		long now = System.nanoTime();
+		if (now < nextTickNanos) {
+			return;
+		}
+		long next = Long.MAX_VALUE;
+		for (int i = 0; i < tickers.size(); i++) {
+			SceneTicker ticker = tickers.get(i);
+			if (now >= ticker.nextTickNanos) {
+				busyNanos += ticker.tick(now);
+			}
+			next = Math.min(next, ticker.nextTickNanos);
+		}
+		nextTickNanos = next;
+	}
+
+	@Override
+	protected void onSceneAttached(Scene scene) {
+		if (scene instanceof TickScene && ((TickScene) scene).tickRate() > 0) {
+			if (inEventLoop()) {
+				addTicker((TickScene) scene);
+			} else {
+				execute(() -> addTicker((TickScene) scene));
+			}
+		}
+	}
+
+	@Override
+	protected void onSceneDetached(Scene scene) {
+		if (scene instanceof TickScene) {
+			if (inEventLoop()) {
+				removeTicker(scene);
+			} else if (!isShutdown()) {
+				execute(() -> removeTicker(scene));
+			}
+		}
+	}
+
+	private void addTicker(TickScene scene) {
+		// 注册后又迁出
+		if (!scenes().contains(scene)) {
+			return;
+		}
+		for (SceneTicker ticker : tickers) {
+			if (ticker.scene == scene) {
+				return;
+			}
+		}
+		SceneTicker ticker = new SceneTicker(scene, System.nanoTime());
+		tickers.add(ticker);
+		nextTickNanos = Math.min(nextTickNanos, ticker.nextTickNanos);
+	}
+
+	private void removeTicker(Scene scene) {
+		tickers.removeIf(ticker -> ticker.scene == scene);
+		if (tickers.isEmpty()) {
+			nextTickNanos = Long.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * 帧统计
+	 * 
+	 * @param scene
+	 * @return 场景未在当前线程帧驱动返回null
+	 */
+	public SceneTickStats getTickStats(Scene scene) {
+		for (SceneTicker ticker : tickers) {
+			if (ticker.scene == scene) {
+				return ticker.stats;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 任务统计
+	 */
+	public SceneLoopMetrics getMetrics() {
+		return metrics;
+	}
+
+	@Override
+	public List<SceneLoopMetrics> loopMetrics() {
+		return Collections.singletonList(metrics);
+	}
+
+	/**
+	 * 执行任务累计耗时
+	 * 
+	 * @return 纳秒
+	 */
+	public long busyNanos() {
+		return busyNanos;
+	}
+
 	@Override
 	protected void cleanup() {
 		super.cleanup();
+		timingWheel.clear().forEach(timeout -> timeout.cancel(false));
 		LOGGER.error("线程[{}] 关闭", this.threadProperties().name());
 
 	}
 
+	/**
+	 * 场景帧状态
+	 */
+	private static final class SceneTicker {
+		private final TickScene scene;
+		private final long periodNanos;
+		private final SceneTickStats stats = new SceneTickStats();
+		private long nextTickNanos;
+		private long lastTickNanos;
+
+		SceneTicker(TickScene scene, long now) {
+			this.scene = scene;
+			this.periodNanos = Math.max(1, TimeUnit.SECONDS.toNanos(1) / scene.tickRate());
+			this.lastTickNanos = now;
+			this.nextTickNanos = now + periodNanos;
+		}
+
+		/**
+		 * 执行帧，落后时按{@link TickScene#maxCatchUpFrames()} 补帧或丢帧
+		 *
+		 * @return 耗时
+		 */
+		long tick(long now) {
+			long behind = (now - nextTickNanos) / periodNanos;
+			long lateness = now - nextTickNanos;
+			int frames = (int) Math.min(behind + 1, 1L + Math.max(0, scene.maxCatchUpFrames()));
+			if (behind > 0) {
+				stats.overruns++;
+				stats.skippedFrames += behind + 1 - frames;
+			}
+			if (lateness > stats.maxLatenessNanos) {
+				stats.maxLatenessNanos = lateness;
+			}
+			long startTime = System.nanoTime();
+			for (int i = 0; i < frames; i++) {
+				long delta = frames > 1 ? periodNanos : now - lastTickNanos;
+				long frameStart = System.nanoTime();
+				try {
+					scene.onTick(delta);
+				} catch (Throwable t) {
+					LOGGER.error("场景[{}-{}] 帧更新异常", scene.getClass().getSimpleName(), scene.id(), t);
+				}
+				long cost = System.nanoTime() - frameStart;
+				stats.ticks++;
+				stats.totalTickNanos += cost;
+				if (cost > stats.maxTickNanos) {
+					stats.maxTickNanos = cost;
+				}
+			}
+			// 保持在固定网格上，不累积漂移
+			nextTickNanos += (behind + 1) * periodNanos;
+			lastTickNanos = now;
+			return System.nanoTime() - startTime;
+		}
+	}
+
 	protected static void safeExecute(Runnable task) {
 		try {
 			task.run();
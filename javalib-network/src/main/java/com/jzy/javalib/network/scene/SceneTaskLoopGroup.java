@@ -4,6 +4,7 @@ import io.netty.channel.nio.NioEventLoopGroup;
 
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 执行场景任务线程组{@link Scene}
@@ -15,6 +16,11 @@ import java.util.concurrent.ThreadFactory;
  */
 public class SceneTaskLoopGroup extends MultithreadSceneLoopGroup {
 
+	/**
+	 * 负载均衡
+	 */
+	private SceneRebalancer rebalancer;
+
 	/**
 	 * Create a new instance using the default number of threads, the default
 	 * {@link ThreadFactory}
@@ -40,6 +46,39 @@ public class SceneTaskLoopGroup extends MultithreadSceneLoopGroup {
 	}
 
 
+	/**
+	 * 迁移场景到指定线程
+	 * 
+	 * @param scene
+	 * @param sceneLoop 目标线程，必须属于当前线程组
+	 * @return
+	 */
+	public SceneFuture migrate(Scene scene, SceneLoop sceneLoop) {
+		if (sceneLoop.parent() != this) {
+			throw new IllegalArgumentException("目标线程不属于当前线程组");
+		}
+		return scene.migrate(sceneLoop);
+	}
+
+	/**
+	 * 开启负载均衡，定时将繁忙线程中的场景迁移到空闲线程
+	 * 
+	 * @param period 检测间隔
+	 * @param unit
+	 * @return 可修改阈值配置
+	 */
+	public synchronized SceneRebalancer startRebalancer(long period, TimeUnit unit) {
+		if (rebalancer == null) {
+			rebalancer = new SceneRebalancer(this);
+			rebalancer.start(period, unit);
+		}
+		return rebalancer;
+	}
+
+	public SceneRebalancer getRebalancer() {
+		return rebalancer;
+	}
+
 	@Override
 	protected SceneLoop newChild(Executor executor, Object... args) throws Exception {
 		return new SceneTaskLoop(this, executor);
@@ -0,0 +1,25 @@
+package com.jzy.javalib.network.scene;
+
+/**
+ * 场景任务优先级，场景过载时按优先级丢弃
+ * <br>
+ * 同一场景的任务仍按提交顺序执行，优先级只影响是否接收
+ *
+ * @author JiangZhiYong
+ * @mail 359135103@qq.com
+ */
+public enum SceneTaskPriority {
+    /**
+     * 总是接收，如交易、充值
+     */
+    HIGH,
+    /**
+     * 超过场景最大队列长度时拒绝
+     */
+    NORMAL,
+    /**
+     * 过载时丢弃，如移动、同步
+     */
+    LOW,
+    ;
+}
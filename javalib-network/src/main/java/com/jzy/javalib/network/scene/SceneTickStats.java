@@ -0,0 +1,78 @@
+package com.jzy.javalib.network.scene;
+
+/**
+ * {@link TickScene} 帧统计，只在场景线程中修改
+ *
+ * @author JiangZhiYong
+ * @mail 359135103@qq.com
+ */
+public final class SceneTickStats {
+
+    /**
+     * 已执行帧数
+     */
+    volatile long ticks;
+
+    /**
+     * 超时次数，落后一帧以上
+     */
+    volatile long overruns;
+
+    /**
+     * 丢弃的帧数
+     */
+    volatile long skippedFrames;
+
+    /**
+     * 帧执行累计耗时
+     */
+    volatile long totalTickNanos;
+
+    /**
+     * 单帧最大耗时
+     */
+    volatile long maxTickNanos;
+
+    /**
+     * 最大延迟，实际执行时间-预定时间
+     */
+    volatile long maxLatenessNanos;
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    public long getOverruns() {
+        return overruns;
+    }
+
+    public long getSkippedFrames() {
+        return skippedFrames;
+    }
+
+    public long getTotalTickNanos() {
+        return totalTickNanos;
+    }
+
+    public long getMaxTickNanos() {
+        return maxTickNanos;
+    }
+
+    public long getMaxLatenessNanos() {
+        return maxLatenessNanos;
+    }
+
+    /**
+     * 平均每帧耗时
+     */
+    public long getAvgTickNanos() {
+        long ticks = this.ticks;
+        return ticks == 0 ? 0 : totalTickNanos / ticks;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ticks=%d overruns=%d skipped=%d avg=%dus max=%dus maxLateness=%dus", ticks, overruns,
+                skippedFrames, getAvgTickNanos() / 1000, maxTickNanos / 1000, maxLatenessNanos / 1000);
+    }
+}
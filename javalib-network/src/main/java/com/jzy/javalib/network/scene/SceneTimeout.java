@@ -0,0 +1,146 @@
+package com.jzy.javalib.network.scene;
+
+import io.netty.util.concurrent.DefaultPromise;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SceneTimingWheel} 中的定时任务，同时是返回给调用方的{@link ScheduledFuture}
+ *
+ * @author JiangZhiYong
+ * @mail 359135103@qq.com
+ * @see io.netty.util.concurrent.ScheduledFutureTask
+ */
+final class SceneTimeout<V> extends DefaultPromise<V> implements ScheduledFuture<V>, Runnable {
+
+    private final SceneTaskLoop loop;
+    private final Callable<V> task;
+    /**
+     * 0 只执行一次，大于0 fixedRate，小于0 fixedDelay
+     */
+    private final long periodNanos;
+    private long deadlineNanos;
+
+    // 时间轮链表，只在所属线程中修改
+    long deadlineTick;
+    SceneTimeout<?> prev;
+    SceneTimeout<?> next;
+    // 所在层级，-1 不在时间轮中
+    int level = -1;
+    int slot;
+
+    SceneTimeout(SceneTaskLoop loop, Callable<V> task, long deadlineNanos, long periodNanos) {
+        super(loop);
+        this.loop = loop;
+        this.task = task;
+        this.deadlineNanos = deadlineNanos;
+        this.periodNanos = periodNanos;
+    }
+
+    long deadlineNanos() {
+        return deadlineNanos;
+    }
+
+    /**
+     * 到期执行，在所属线程中调用
+     */
+    @Override
+    public void run() {
+        try {
+            if (periodNanos == 0) {
+                if (setUncancellableInternal()) {
+                    setSuccessInternal(task.call());
+                }
+                return;
+            }
+            if (isCancelled()) {
+                return;
+            }
+            task.call();
+            if (!loop.isShutdown() && !isCancelled()) {
+                if (periodNanos > 0) {
+                    deadlineNanos += periodNanos;
+                } else {
+                    deadlineNanos = System.nanoTime() - periodNanos;
+                }
+                loop.timingWheel().add(this);
+            }
+        } catch (Throwable cause) {
+            setFailureInternal(cause);
+        }
+    }
+
+    private boolean setUncancellableInternal() {
+        return super.setUncancellable();
+    }
+
+    private void setSuccessInternal(V result) {
+        super.setSuccess(result);
+    }
+
+    private void setFailureInternal(Throwable cause) {
+        super.tryFailure(cause);
+    }
+
+    @Override
+    public Promise<V> setSuccess(V result) {
+        throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean trySuccess(V result) {
+        return false;
+    }
+
+    @Override
+    public Promise<V> setFailure(Throwable cause) {
+        throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean tryFailure(Throwable cause) {
+        return false;
+    }
+
+    @Override
+    public boolean setUncancellable() {
+        throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean canceled = super.cancel(mayInterruptIfRunning);
+        if (canceled) {
+            loop.removeTimeout(this);
+        }
+        return canceled;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed o) {
+        if (this == o) {
+            return 0;
+        }
+        if (o instanceof SceneTimeout) {
+            return Long.compare(deadlineNanos, ((SceneTimeout<?>) o).deadlineNanos);
+        }
+        return Long.compare(getDelay(TimeUnit.NANOSECONDS), o.getDelay(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    protected StringBuilder toStringBuilder() {
+        StringBuilder buf = super.toStringBuilder();
+        buf.setCharAt(buf.length() - 1, ',');
+        return buf.append(" task: ").append(task).append(", deadline: ").append(deadlineNanos)
+                .append(", period: ").append(periodNanos).append(')');
+    }
+}
@@ -0,0 +1,199 @@
+package com.jzy.javalib.network.scene;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分层时间轮，{@link SceneTaskLoop} 的定时任务容器
+ * <br>
+ * 4层，每层256个槽，添加、取消都是O(1)；只能在所属线程中访问
+ *
+ * @author JiangZhiYong
+ * @mail 359135103@qq.com
+ * @see io.netty.util.HashedWheelTimer
+ */
+final class SceneTimingWheel {
+
+    private static final int LEVEL_BITS = 8;
+    private static final int SLOTS = 1 << LEVEL_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    /**
+     * 最大间隔tick数，超出的先放在最高层，到期后重新计算
+     */
+    private static final long MAX_TICKS = (1L << (LEVEL_BITS * LEVELS)) - 1;
+
+    private final SceneTimeout<?>[][] wheel = new SceneTimeout<?>[LEVELS][SLOTS];
+    private final long tickNanos;
+    private final long startNanos;
+    /**
+     * 下一个待处理的tick
+     */
+    private long currentTick;
+    private int size;
+
+    SceneTimingWheel(long tickNanos) {
+        this.tickNanos = tickNanos;
+        this.startNanos = System.nanoTime();
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    long tickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * 添加定时任务
+     *
+     * @param timeout
+     */
+    void add(SceneTimeout<?> timeout) {
+        if (size == 0) {
+            // 空闲期间不推进tick，重新对齐当前时间
+            currentTick = Math.max(currentTick, (System.nanoTime() - startNanos) / tickNanos);
+        }
+        long elapsed = timeout.deadlineNanos() - startNanos;
+        // 向上取整，不提前触发
+        long deadlineTick = elapsed <= 0 ? 0 : (elapsed + tickNanos - 1) / tickNanos;
+        timeout.deadlineTick = deadlineTick;
+        place(timeout);
+        size++;
+    }
+
+    private void place(SceneTimeout<?> timeout) {
+        long tick = Math.max(timeout.deadlineTick, currentTick);
+        long ticks = tick - currentTick;
+        if (ticks > MAX_TICKS) {
+            ticks = MAX_TICKS;
+            tick = currentTick + MAX_TICKS;
+        }
+        int level = 0;
+        while (level < LEVELS - 1 && ticks >= (1L << (LEVEL_BITS * (level + 1)))) {
+            level++;
+        }
+        int slot = (int) ((tick >>> (LEVEL_BITS * level)) & SLOT_MASK);
+        link(timeout, level, slot);
+    }
+
+    private void link(SceneTimeout<?> timeout, int level, int slot) {
+        SceneTimeout<?> head = wheel[level][slot];
+        timeout.level = level;
+        timeout.slot = slot;
+        timeout.prev = null;
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        wheel[level][slot] = timeout;
+    }
+
+    private void unlink(SceneTimeout<?> timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            wheel[timeout.level][timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.level = -1;
+    }
+
+    /**
+     * 移除定时任务
+     *
+     * @param timeout
+     */
+    void remove(SceneTimeout<?> timeout) {
+        if (timeout.level < 0) {
+            return;
+        }
+        unlink(timeout);
+        size--;
+    }
+
+    /**
+     * 执行到期任务
+     *
+     * @param nowNanos
+     */
+    void expire(long nowNanos) {
+        long targetTick = (nowNanos - startNanos) / tickNanos;
+        while (size > 0 && currentTick <= targetTick) {
+            long tick = currentTick;
+            cascade(tick);
+            int slot = (int) (tick & SLOT_MASK);
+            SceneTimeout<?> timeout = wheel[0][slot];
+            wheel[0][slot] = null;
+            currentTick = tick + 1;
+            while (timeout != null) {
+                SceneTimeout<?> next = timeout.next;
+                timeout.prev = null;
+                timeout.next = null;
+                timeout.level = -1;
+                if (timeout.deadlineTick <= tick) {
+                    size--;
+                    timeout.run();
+                } else {
+                    // 超出最大间隔的任务
+                    place(timeout);
+                }
+                timeout = next;
+            }
+        }
+        if (size == 0 && currentTick <= targetTick) {
+            currentTick = targetTick + 1;
+        }
+    }
+
+    /**
+     * 低层转满一圈时，把上层对应槽位的任务下放
+     */
+    private void cascade(long tick) {
+        for (int level = 1; level < LEVELS; level++) {
+            if (((tick >>> (LEVEL_BITS * (level - 1))) & SLOT_MASK) != 0) {
+                return;
+            }
+            int slot = (int) ((tick >>> (LEVEL_BITS * level)) & SLOT_MASK);
+            SceneTimeout<?> timeout = wheel[level][slot];
+            wheel[level][slot] = null;
+            while (timeout != null) {
+                SceneTimeout<?> next = timeout.next;
+                place(timeout);
+                timeout = next;
+            }
+        }
+    }
+
+    /**
+     * 清空并返回所有未执行任务
+     */
+    List<SceneTimeout<?>> clear() {
+        List<SceneTimeout<?>> timeouts = new ArrayList<>(size);
+        for (SceneTimeout<?>[] slots : wheel) {
+            for (int i = 0; i < slots.length; i++) {
+                SceneTimeout<?> timeout = slots[i];
+                slots[i] = null;
+                while (timeout != null) {
+                    SceneTimeout<?> next = timeout.next;
+                    timeout.prev = null;
+                    timeout.next = null;
+                    timeout.level = -1;
+                    timeouts.add(timeout);
+                    timeout = next;
+                }
+            }
+        }
+        size = 0;
+        return timeouts;
+    }
+}
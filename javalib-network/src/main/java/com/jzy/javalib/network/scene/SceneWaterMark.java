@@ -0,0 +1,37 @@
+package com.jzy.javalib.network.scene;
+
+import io.netty.channel.WriteBufferWaterMark;
+
+/**
+ * 队列长度高低水位，超过高水位进入过载，降到低水位以下恢复
+ *
+ * @author JiangZhiYong
+ * @mail 359135103@qq.com
+ * @see WriteBufferWaterMark
+ */
+public final class SceneWaterMark {
+
+    private final int low;
+    private final int high;
+
+    public SceneWaterMark(int low, int high) {
+        if (low < 0 || high < low) {
+            throw new IllegalArgumentException(String.format("水位错误 low=%d high=%d", low, high));
+        }
+        this.low = low;
+        this.high = high;
+    }
+
+    public int low() {
+        return low;
+    }
+
+    public int high() {
+        return high;
+    }
+
+    @Override
+    public String toString() {
+        return "SceneWaterMark(low: " + low + ", high: " + high + ")";
+    }
+}
@@ -7,9 +7,13 @@ import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.UnstableApi;
 
+import java.util.Collections;
 import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Abstract base class for {@link SceneLoop}s that execute all its submitted
@@ -21,11 +25,39 @@ import java.util.concurrent.ThreadFactory;
  */
 public abstract class SingleThreadTaskLoop extends SingleThreadEventExecutor implements SceneLoop {
 
+    /**
+     * 默认线程队列高低水位，包括线程中所有场景队列
+     */
+    protected static final SceneWaterMark DEFAULT_WATER_MARK = new SceneWaterMark(
+            SystemPropertyUtil.getInt("com.game.sceneTaskLoop.lowWaterMark", 16384),
+            SystemPropertyUtil.getInt("com.game.sceneTaskLoop.highWaterMark", 32768));
+
+    /**
+     * 线程队列容量，默认高水位的4倍，超过后直接提交的任务被拒绝；场景任务在场景队列中，线程队列只有每个场景一个执行任务
+     */
     protected static final int DEFAULT_MAX_PENDING_TASKS = Math.max(16,
-            SystemPropertyUtil.getInt("com.game.sceneTaskLoop.maxPendingTasks", Integer.MAX_VALUE));
+            SystemPropertyUtil.getInt("com.game.sceneTaskLoop.maxPendingTasks",
+                    (int) Math.min(Integer.MAX_VALUE, DEFAULT_WATER_MARK.high() * 4L)));
 
     private final Queue<Runnable> tailTasks;
 
+    /**
+     * 已注册场景的权重和
+     */
+    private final AtomicInteger sceneWeight = new AtomicInteger();
+
+    /**
+     * 已注册的场景
+     */
+    private final Set<Scene> scenes = ConcurrentHashMap.newKeySet();
+
+    private volatile SceneWaterMark waterMark = DEFAULT_WATER_MARK;
+
+    /**
+     * 线程过载，{@link #checkOverload()} 中更新
+     */
+    private volatile boolean overloaded;
+
     protected SingleThreadTaskLoop(SceneLoopGroup parent, ThreadFactory threadFactory, boolean addTaskWakesUp) {
         this(parent, threadFactory, addTaskWakesUp, DEFAULT_MAX_PENDING_TASKS, RejectedExecutionHandlers.reject());
     }
@@ -65,9 +97,125 @@ public abstract class SingleThreadTaskLoop extends SingleThreadEventExecutor imp
     public SceneFuture register(final ScenePromise promise) {
         ObjectUtil.checkNotNull(promise, "promise");
         promise.scene().register(this);
+        attach(promise.scene());
+        promise.trySuccess();
         return promise;
     }
 
+    /**
+     * 记录场景归属
+     *
+     * @param scene
+     */
+    void attach(Scene scene) {
+        if (scenes.add(scene)) {
+            sceneWeight.addAndGet(scene.weight());
+            onSceneAttached(scene);
+        }
+    }
+
+    /**
+     * 移除场景归属，场景迁移或销毁时调用
+     *
+     * @param scene
+     */
+    void detach(Scene scene) {
+        if (scenes.remove(scene)) {
+            sceneWeight.addAndGet(-scene.weight());
+            if (parent() instanceof MultithreadSceneLoopGroup) {
+                ((MultithreadSceneLoopGroup) parent()).getPlacementStrategy().release(scene, this);
+            }
+            onSceneDetached(scene);
+        }
+    }
+
+    /**
+     * 注销场景，场景销毁时调用，释放线程权重和独占
+     *
+     * @param scene
+     */
+    public void deregister(Scene scene) {
+        detach(scene);
+    }
+
+    /**
+     * 场景注册或迁入，可能在其他线程调用
+     *
+     * @param scene
+     */
+    protected void onSceneAttached(Scene scene) {
+    }
+
+    /**
+     * 场景迁出或移除，可能在其他线程调用
+     *
+     * @param scene
+     */
+    protected void onSceneDetached(Scene scene) {
+    }
+
+    /**
+     * 当前线程已注册的场景
+     *
+     * @return
+     */
+    public Set<Scene> scenes() {
+        return Collections.unmodifiableSet(scenes);
+    }
+
+    /**
+     * 已注册到当前线程的场景权重和
+     *
+     * @return
+     */
+    public int sceneWeight() {
+        return sceneWeight.get();
+    }
+
+    /**
+     * 线程队列和所有场景队列任务数
+     *
+     * @return
+     */
+    public int totalPendingTasks() {
+        int pendingTasks = pendingTasks();
+        for (Scene scene : scenes) {
+            if (scene instanceof AbstractScene) {
+                pendingTasks += ((AbstractScene) scene).pendingTasks();
+            }
+        }
+        return pendingTasks;
+    }
+
+    /**
+     * 检测线程是否过载，状态变化时通知所有场景，在线程中定时调用
+     */
+    protected void checkOverload() {
+        int pendingTasks = totalPendingTasks();
+        boolean overloaded = this.overloaded ? pendingTasks > waterMark.low() : pendingTasks >= waterMark.high();
+        if (overloaded == this.overloaded) {
+            return;
+        }
+        this.overloaded = overloaded;
+        for (Scene scene : scenes) {
+            if (scene instanceof AbstractScene) {
+                ((AbstractScene) scene).updateOverload();
+            }
+        }
+    }
+
+    public boolean isOverloaded() {
+        return overloaded;
+    }
+
+    public SceneWaterMark getWaterMark() {
+        return waterMark;
+    }
+
+    public void setWaterMark(SceneWaterMark waterMark) {
+        this.waterMark = waterMark;
+    }
+
     /**
      * Adds a task to be run once at the end of next (or current) {@code eventloop}
      * iteration.
@@ -128,4 +276,10 @@ public abstract class SingleThreadTaskLoop extends SingleThreadEventExecutor imp
      */
     interface NonWakeupRunnable extends Runnable {
     }
+
+    /**
+     * 内部连续执行多个子任务，子任务单独统计
+     */
+    interface BatchRunnable extends Runnable {
+    }
 }
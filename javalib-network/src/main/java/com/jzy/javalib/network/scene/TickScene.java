@@ -0,0 +1,37 @@
+package com.jzy.javalib.network.scene;
+
+/**
+ * 固定帧率驱动的{@link Scene}
+ * <br>
+ * 注册到{@link SceneTaskLoop} 后由线程按{@link #tickRate()} 调用{@link #onTick(long)}，任务在两帧之间执行，
+ * 替代使用scheduleAtFixedRate驱动移动、AI等逻辑
+ *
+ * @author JiangZhiYong
+ * @mail 359135103@qq.com
+ */
+public interface TickScene extends Scene {
+
+    /**
+     * 每秒帧数
+     *
+     * @return
+     */
+    int tickRate();
+
+    /**
+     * 帧更新，在场景所在线程调用
+     *
+     * @param deltaNanos 距上一帧的时间
+     */
+    void onTick(long deltaNanos);
+
+    /**
+     * 负载过高落后多帧时最多补帧数，补帧时每帧deltaNanos为固定帧间隔，超出的帧丢弃；
+     * 0 不补帧，只执行一帧，deltaNanos为实际间隔
+     *
+     * @return
+     */
+    default int maxCatchUpFrames() {
+        return 0;
+    }
+}